@@ -0,0 +1,46 @@
+package thesis.benchmark;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Generates tracker-like data sets: the two rating columns the class attribute is derived from, a binary
+ * "label" column usable as class attribute and any number of numeric columns with missing values.
+ */
+public class SyntheticDataSets {
+
+    public static final String LABEL_ATTRIBUTE = "label";
+
+    public static Instances generate(int numRows, int numAttributes, double missingRatio, long seed) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("rating"));
+        attributes.add(new Attribute("recommendation_score"));
+        attributes.add(new Attribute(LABEL_ATTRIBUTE));
+        for (int i = 0; i < numAttributes; i++) {
+            attributes.add(new Attribute(attributeName(i)));
+        }
+
+        Random random = new Random(seed);
+        Instances dataSet = new Instances("synthetic", attributes, numRows);
+        for (int row = 0; row < numRows; row++) {
+            double[] values = new double[attributes.size()];
+            values[0] = random.nextInt(11);
+            values[1] = random.nextInt(11);
+            values[2] = random.nextDouble() < 0.3 ? 0 : 1;
+            for (int i = 0; i < numAttributes; i++) {
+                values[3 + i] = random.nextDouble() < missingRatio ? Utils.missingValue() : random.nextGaussian() * (i + 1);
+            }
+            dataSet.add(new DenseInstance(1.0, values));
+        }
+        return dataSet;
+    }
+
+    public static String attributeName(int index) {
+        return "attribute_" + index;
+    }
+}
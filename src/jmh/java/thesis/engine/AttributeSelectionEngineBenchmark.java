@@ -0,0 +1,67 @@
+package thesis.engine;
+
+import org.openjdk.jmh.annotations.*;
+import thesis.benchmark.SyntheticDataSets;
+import thesis.engine.selection.AttributeSelectionStrategy;
+import thesis.engine.selection.CorrelationBasedSelectionStrategy;
+import thesis.engine.selection.SelectionResult;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sweeps the size limits of the random strategy, once as separate runs and once as one shared comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttributeSelectionEngineBenchmark {
+
+    private static final int[][] SIZE_LIMITS = {{2, 5}, {2, 10}, {5, 10}, {5, 20}};
+
+    @Param({"10000"})
+    private int numRows;
+
+    @Param({"100"})
+    private int numAttributes;
+
+    @Param({"1000"})
+    private int maxIterations;
+
+    private Instances dataSet;
+
+    @Setup(Level.Trial)
+    public void generateDataSet() {
+        dataSet = SyntheticDataSets.generate(numRows, numAttributes, 0.0, 42);
+        dataSet.setClass(dataSet.attribute(SyntheticDataSets.LABEL_ATTRIBUTE));
+    }
+
+    @Benchmark
+    public List<String[]> separateRuns() {
+        List<String[]> attributesToRemove = new ArrayList<>();
+        for (AttributeSelectionStrategy strategy : createStrategies()) {
+            attributesToRemove.add(strategy.getAttributesToRemove());
+        }
+        return attributesToRemove;
+    }
+
+    @Benchmark
+    public List<SelectionResult> compareStrategies() {
+        return new AttributeSelectionEngine(dataSet).compareStrategies(createStrategies(), SIZE_LIMITS.length);
+    }
+
+    private List<AttributeSelectionStrategy> createStrategies() {
+        List<AttributeSelectionStrategy> strategies = new ArrayList<>();
+        for (int[] sizeLimits : SIZE_LIMITS) {
+            AttributeSelectionStrategy strategy = new CorrelationBasedSelectionStrategy(dataSet, sizeLimits[0], sizeLimits[1], maxIterations);
+            strategy.setSeed(42);
+            strategies.add(strategy);
+        }
+        return strategies;
+    }
+}
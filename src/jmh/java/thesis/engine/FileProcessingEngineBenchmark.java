@@ -0,0 +1,59 @@
+package thesis.engine;
+
+import org.openjdk.jmh.annotations.*;
+import thesis.benchmark.SyntheticDataSets;
+import thesis.engine.column.ColumnSnapshot;
+import thesis.engine.column.LazyArffColumns;
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileProcessingEngineBenchmark {
+
+    @Param({"10000", "100000"})
+    private int numRows;
+
+    @Param({"20", "200"})
+    private int numAttributes;
+
+    private File arffFile;
+    private File snapshotFile;
+
+    @Setup(Level.Trial)
+    public void writeFiles() throws IOException {
+        Instances dataSet = SyntheticDataSets.generate(numRows, numAttributes, 0.3, 42);
+        arffFile = File.createTempFile("benchmark", ".arff");
+        snapshotFile = File.createTempFile("benchmark", ColumnSnapshot.FILE_EXTENSION);
+        FileProcessingEngine.writeDataSetToFile(dataSet, arffFile.getPath());
+        FileProcessingEngine.writeDataSetToFile(dataSet, snapshotFile.getPath());
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() {
+        arffFile.delete();
+        snapshotFile.delete();
+    }
+
+    @Benchmark
+    public Object readArff() {
+        return FileProcessingEngine.readDataSetFromFile(arffFile.getPath());
+    }
+
+    @Benchmark
+    public Object readColumnSnapshot() {
+        return ColumnSnapshot.read(snapshotFile.getPath());
+    }
+
+    @Benchmark
+    public Object readLazyArffSingleColumn() {
+        return LazyArffColumns.open(arffFile.getPath(), Long.MAX_VALUE).column(numAttributes / 2);
+    }
+}
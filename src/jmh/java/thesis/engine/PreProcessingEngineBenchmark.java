@@ -0,0 +1,110 @@
+package thesis.engine;
+
+import org.openjdk.jmh.annotations.*;
+import thesis.benchmark.SyntheticDataSets;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreProcessingEngineBenchmark {
+
+    @Param({"10000", "100000"})
+    private int numRows;
+
+    @Param({"20", "200"})
+    private int numAttributes;
+
+    @Param({"0.3", "0.9"})
+    private double missingRatio;
+
+    // Above 1 every column stays dense
+    @Param({"0.75", "2"})
+    private double sparseThreshold;
+
+    @Param({"1", "8"})
+    private int parallelism;
+
+    private Instances dataSet;
+    private PreProcessingPipeline pipeline;
+    private PreProcessingEngine preProcessingEngine;
+    private Set<Attribute> replaceableAttributes;
+    private String[] unneededAttributeNames;
+
+    @Setup(Level.Trial)
+    public void generateDataSet() {
+        dataSet = SyntheticDataSets.generate(numRows, numAttributes, missingRatio, 42);
+        unneededAttributeNames = IntStream.range(0, numAttributes / 2)
+                .mapToObj(SyntheticDataSets::attributeName)
+                .toArray(String[]::new);
+        pipeline = PreProcessingPipeline.builder()
+                .deriveClassAttribute("satisfaction")
+                .removeAttributes(unneededAttributeNames)
+                .replaceMissingValues(IntStream.range(numAttributes / 2, numAttributes)
+                        .mapToObj(SyntheticDataSets::attributeName)
+                        .toArray(String[]::new))
+                .normalize(0.0, 1.0)
+                .parallelism(parallelism)
+                .build();
+    }
+
+    // Stages modify the data set in place, so every invocation starts from a fresh, already converted copy
+    @Setup(Level.Invocation)
+    public void createPreProcessingEngine() {
+        Instances copy = new Instances(dataSet);
+        copy.setClass(copy.attribute(SyntheticDataSets.LABEL_ATTRIBUTE));
+        preProcessingEngine = new PreProcessingEngine(copy);
+        preProcessingEngine.setParallelism(parallelism);
+        preProcessingEngine.setSparseThreshold(sparseThreshold);
+        preProcessingEngine.getColumns();
+
+        replaceableAttributes = new HashSet<>();
+        for (int i = 0; i < numAttributes; i++) {
+            replaceableAttributes.add(copy.attribute(SyntheticDataSets.attributeName(i)));
+        }
+    }
+
+    @Benchmark
+    public Object computeNewClassAttribute() {
+        preProcessingEngine.computeNewClassAttribute("satisfaction");
+        return preProcessingEngine.getColumns();
+    }
+
+    @Benchmark
+    public Object replaceMissingAttributeValues() {
+        preProcessingEngine.replaceMissingAttributeValues(replaceableAttributes);
+        return preProcessingEngine.getColumns();
+    }
+
+    @Benchmark
+    public Object normalizeAttributeValues() {
+        preProcessingEngine.normalizeAttributeValues(0.0, 1.0);
+        return preProcessingEngine.getColumns();
+    }
+
+    @Benchmark
+    public Object balanceDataSet() {
+        preProcessingEngine.balanceDataSet();
+        return preProcessingEngine.getColumns();
+    }
+
+    @Benchmark
+    public Object fusedPipeline() {
+        return pipeline.run(dataSet);
+    }
+
+    @Benchmark
+    public Object filterUnneededAttributes() {
+        preProcessingEngine.filterUnneededAttributes(unneededAttributeNames);
+        return preProcessingEngine.getColumns();
+    }
+}
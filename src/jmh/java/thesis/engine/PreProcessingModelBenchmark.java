@@ -0,0 +1,76 @@
+package thesis.engine;
+
+import org.openjdk.jmh.annotations.*;
+import thesis.benchmark.SyntheticDataSets;
+import thesis.engine.statistics.DataSetStatistics;
+import weka.core.Instances;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares scoring single records and micro-batches with a fitted model against running the pipeline on them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PreProcessingModelBenchmark {
+
+    @Param({"20", "200"})
+    private int numAttributes;
+
+    @Param({"64"})
+    private int batchSize;
+
+    private PreProcessingPipeline pipeline;
+    private DataSetStatistics statistics;
+    private PreProcessingModel model;
+    private Instances record;
+    private Instances batch;
+    private double[] output;
+    private double[][] outputs;
+
+    @Setup(Level.Trial)
+    public void fitModel() {
+        Instances dataSet = SyntheticDataSets.generate(10_000, numAttributes, 0.3, 42);
+        pipeline = PreProcessingPipeline.builder()
+                .deriveClassAttribute("satisfaction")
+                .removeAttributes(SyntheticDataSets.LABEL_ATTRIBUTE)
+                .replaceMissingValues(IntStream.range(0, numAttributes)
+                        .mapToObj(SyntheticDataSets::attributeName)
+                        .toArray(String[]::new))
+                .normalize(0.0, 1.0)
+                .build();
+        statistics = DataSetStatistics.of(dataSet);
+        model = pipeline.fit(dataSet, statistics);
+        record = new Instances(dataSet, 0, 1);
+        batch = new Instances(dataSet, 0, batchSize);
+        output = new double[model.numOutputValues()];
+        outputs = new double[batchSize][model.numOutputValues()];
+    }
+
+    @Benchmark
+    public double[] modelRecord() {
+        model.transform(record.instance(0), output);
+        return output;
+    }
+
+    @Benchmark
+    public double[][] modelBatch() {
+        model.transform(batch, outputs);
+        return outputs;
+    }
+
+    @Benchmark
+    public Object pipelineRecord() {
+        return pipeline.run(record, statistics);
+    }
+
+    @Benchmark
+    public Object pipelineBatch() {
+        return pipeline.run(batch, statistics);
+    }
+}
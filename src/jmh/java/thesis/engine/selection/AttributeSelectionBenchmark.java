@@ -0,0 +1,62 @@
+package thesis.engine.selection;
+
+import org.openjdk.jmh.annotations.*;
+import thesis.benchmark.SyntheticDataSets;
+import weka.core.Instances;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AttributeSelectionBenchmark {
+
+    @Param({"10000"})
+    private int numRows;
+
+    @Param({"20", "200"})
+    private int numAttributes;
+
+    @Param({"1000"})
+    private int maxIterations;
+
+    @Param({"random", "greedyForward", "backwardElimination", "bestFirst"})
+    private String search;
+
+    private Instances dataSet;
+    private AttributeSelectionStrategy strategy;
+
+    @Setup(Level.Trial)
+    public void generateDataSet() {
+        dataSet = SyntheticDataSets.generate(numRows, numAttributes, 0.0, 42);
+        dataSet.setClass(dataSet.attribute(SyntheticDataSets.LABEL_ATTRIBUTE));
+    }
+
+    // A new strategy per invocation, so that correlations and merits cached by a previous invocation are not reused
+    @Setup(Level.Invocation)
+    public void createStrategy() {
+        strategy = newStrategy(search);
+        strategy.setSeed(42);
+    }
+
+    @Benchmark
+    public String[] getAttributesToRemove() {
+        return strategy.getAttributesToRemove();
+    }
+
+    private AttributeSelectionStrategy newStrategy(String search) {
+        switch (search) {
+            case "greedyForward":
+                return new GreedyForwardSelectionStrategy(dataSet, 2, 10);
+            case "backwardElimination":
+                return new BackwardEliminationStrategy(dataSet, 2, 10);
+            case "bestFirst":
+                return new BestFirstSelectionStrategy(dataSet, 2, 10);
+            default:
+                return new CorrelationBasedSelectionStrategy(dataSet, 2, 10, maxIterations);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package thesis.engine.selection;
+
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the correlation kernel with commons-math, correlating a class column with numColumns attribute columns.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CorrelationKernelBenchmark {
+
+    @Param({"1000", "100000"})
+    private int numRows;
+
+    @Param({"16"})
+    private int numColumns;
+
+    private double[] classColumn;
+    private double[][] columns;
+    private double[] results;
+
+    @Setup(Level.Trial)
+    public void generateColumns() {
+        SplittableRandom random = new SplittableRandom(42);
+        classColumn = new double[numRows];
+        columns = new double[numColumns][numRows];
+        for (int row = 0; row < numRows; row++) {
+            classColumn[row] = random.nextDouble();
+            for (double[] column : columns) {
+                column[row] = classColumn[row] * random.nextDouble() + random.nextDouble();
+            }
+        }
+        results = new double[numColumns];
+    }
+
+    @Benchmark
+    public double[] commonsMath() {
+        for (int column = 0; column < numColumns; column++) {
+            results[column] = new PearsonsCorrelation().correlation(classColumn, columns[column]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public double[] kernel() {
+        for (int column = 0; column < numColumns; column++) {
+            results[column] = CorrelationKernel.correlate(classColumn, columns[column]);
+        }
+        return results;
+    }
+
+    @Benchmark
+    public double[] kernelOneWithMany() {
+        CorrelationKernel.correlate(classColumn, columns, results);
+        return results;
+    }
+}
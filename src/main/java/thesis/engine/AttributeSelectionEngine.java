@@ -1,11 +1,22 @@
 package thesis.engine;
 
+import thesis.engine.column.ColumnStore;
 import thesis.engine.selection.AttributeSelectionStrategy;
+import thesis.engine.selection.CorrelationMatrix;
+import thesis.engine.selection.SelectionResult;
 import weka.core.Instances;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class AttributeSelectionEngine {
 
     private Instances dataSet;
+    private double sparseThreshold = ColumnStore.DEFAULT_SPARSE_THRESHOLD;
 
     public AttributeSelectionEngine(Instances dataSet) {
         this.dataSet = dataSet;
@@ -15,9 +26,74 @@ public class AttributeSelectionEngine {
         return dataSet;
     }
 
+    /**
+     * Sets the fraction of missing or 0 values from which a column shared by compared strategies is stored
+     * sparsely, so its correlations are computed over its entries only. Values above 1 keep every column dense.
+     */
+    public void setSparseThreshold(double sparseThreshold) {
+        if (Double.isNaN(sparseThreshold) || sparseThreshold < 0) {
+            throw new IllegalArgumentException("Sparse threshold must not be negative but was " + sparseThreshold);
+        }
+        this.sparseThreshold = sparseThreshold;
+    }
+
     public void filterUnsuitableAttributes(AttributeSelectionStrategy strategy) {
-        String[] attributesToRemove = strategy.getAttributesToRemove();
+        filterAttributes(strategy.getAttributesToRemove());
+    }
+
+    public void filterUnsuitableAttributes(SelectionResult result) {
+        filterAttributes(result.getAttributesToRemove());
+    }
+
+    /**
+     * Runs strategies created for the data set of this engine on up to parallelism threads and returns their
+     * results ranked from best to worst merit, equal merits in the order the strategies were passed. All
+     * strategies share one column copy of the data set and one correlation matrix, so every coefficient is
+     * computed only once no matter how many strategies need it. Columns with at least the sparse threshold of
+     * missing or 0 values are stored sparsely in that copy. The strategies are rebound to these via
+     * setColumns and setCorrelationMatrix, so each of them has to be created for the very data set instance of
+     * this engine. The data set is not filtered.
+     */
+    public List<SelectionResult> compareStrategies(List<AttributeSelectionStrategy> strategies, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism);
+        }
+        for (AttributeSelectionStrategy strategy : strategies) {
+            if (strategy.getDataSet() != dataSet) {
+                throw new IllegalArgumentException("Strategy " + strategy.getClass().getSimpleName()
+                        + " was not created for data set " + dataSet.relationName());
+            }
+        }
+
+        ColumnStore columns = ColumnStore.of(dataSet);
+        columns.compressSparseColumns(sparseThreshold);
+        CorrelationMatrix correlationMatrix = new CorrelationMatrix(columns);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(strategies.size(), 1)));
+        try {
+            List<Future<SelectionResult>> futures = new ArrayList<>(strategies.size());
+            for (AttributeSelectionStrategy strategy : strategies) {
+                strategy.setColumns(columns);
+                strategy.setCorrelationMatrix(correlationMatrix);
+                futures.add(executor.submit(strategy::selectAttributes));
+            }
+
+            List<SelectionResult> results = new ArrayList<>(futures.size());
+            for (Future<SelectionResult> future : futures) {
+                results.add(future.get());
+            }
+            results.sort((first, second) -> first.isBetterThan(second) ? -1 : second.isBetterThan(first) ? 1 : 0);
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Comparison of attribute selection strategies was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("An error occurred when trying to run an attribute selection strategy", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
 
+    private void filterAttributes(String[] attributesToRemove) {
         PreProcessingEngine preProcessingEngine = new PreProcessingEngine(dataSet);
         preProcessingEngine.filterUnneededAttributes(attributesToRemove);
         this.dataSet = preProcessingEngine.getDataSet();
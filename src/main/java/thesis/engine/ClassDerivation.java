@@ -0,0 +1,204 @@
+package thesis.engine;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Derives a nominal class attribute from numeric source attributes: their values are combined into one value
+ * per row, which is binned by ascending thresholds. The class value of a row is the index of its bin, which is
+ * the index of the label of that bin, so no labels are looked up while deriving. Rows whose combined value is
+ * missing get a missing class value.
+ */
+public class ClassDerivation {
+
+    public enum Combination {
+        MEAN {
+            @Override
+            double finish(double accumulated, int numValues) {
+                return accumulated / numValues;
+            }
+        },
+        SUM,
+        MIN {
+            @Override
+            double initialValue() {
+                return Double.POSITIVE_INFINITY;
+            }
+
+            @Override
+            double accumulate(double accumulated, double value) {
+                return Math.min(accumulated, value);
+            }
+        },
+        MAX {
+            @Override
+            double initialValue() {
+                return Double.NEGATIVE_INFINITY;
+            }
+
+            @Override
+            double accumulate(double accumulated, double value) {
+                return Math.max(accumulated, value);
+            }
+        };
+
+        double initialValue() {
+            return 0;
+        }
+
+        double accumulate(double accumulated, double value) {
+            return accumulated + value;
+        }
+
+        double finish(double accumulated, int numValues) {
+            return accumulated;
+        }
+    }
+
+    private final String attributeName;
+    private final String[] sourceAttributeNames;
+    private final Combination combination;
+    private final double[] thresholds;
+    private final List<String> labels;
+
+    /**
+     * Bin i holds the combined values from threshold i - 1 (inclusive) to threshold i (exclusive) and is labelled
+     * with label i, so there has to be one label more than thresholds.
+     */
+    public ClassDerivation(String attributeName, String[] sourceAttributeNames, Combination combination,
+                           double[] thresholds, List<String> labels) {
+        if (sourceAttributeNames.length == 0) {
+            throw new IllegalArgumentException("Class attribute " + attributeName + " needs at least one source attribute");
+        }
+        for (int i = 0; i < thresholds.length; i++) {
+            if (Double.isNaN(thresholds[i]) || i > 0 && thresholds[i] <= thresholds[i - 1]) {
+                throw new IllegalArgumentException("Thresholds of class attribute " + attributeName
+                        + " have to be strictly ascending but were " + Arrays.toString(thresholds));
+            }
+        }
+        if (labels.size() != thresholds.length + 1) {
+            throw new IllegalArgumentException("Class attribute " + attributeName + " has " + thresholds.length
+                    + " thresholds and needs " + (thresholds.length + 1) + " labels but got " + labels.size());
+        }
+        this.attributeName = attributeName;
+        this.sourceAttributeNames = sourceAttributeNames.clone();
+        this.combination = combination;
+        this.thresholds = thresholds.clone();
+        this.labels = new ArrayList<>(labels);
+    }
+
+    /**
+     * Customers are unsatisfied below a mean rating and recommendation score of 5 and satisfied from 6.5 on.
+     */
+    public static ClassDerivation satisfaction(String attributeName) {
+        return new ClassDerivation(attributeName, new String[] {"rating", "recommendation_score"}, Combination.MEAN,
+                new double[] {5.0, 6.5}, Arrays.asList("unsatisfied", "neutral", "satisfied"));
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    public String[] getSourceAttributeNames() {
+        return sourceAttributeNames.clone();
+    }
+
+    public List<String> getLabels() {
+        return new ArrayList<>(labels);
+    }
+
+    public Attribute createAttribute() {
+        return new Attribute(attributeName, new ArrayList<>(labels));
+    }
+
+    /**
+     * Derives the class values of the rows fromRow (inclusive) to toRow (exclusive) from the source columns, in
+     * the order of the source attribute names. The class values are accumulated column by column.
+     */
+    public void derive(double[][] sourceColumns, double[] classValues, int fromRow, int toRow) {
+        if (sourceColumns.length != sourceAttributeNames.length) {
+            throw new IllegalArgumentException("Class attribute " + attributeName + " is derived from "
+                    + sourceAttributeNames.length + " columns but got " + sourceColumns.length);
+        }
+        Arrays.fill(classValues, fromRow, toRow, combination.initialValue());
+        for (double[] sourceColumn : sourceColumns) {
+            for (int row = fromRow; row < toRow; row++) {
+                classValues[row] = combination.accumulate(classValues[row], sourceColumn[row]);
+            }
+        }
+        for (int row = fromRow; row < toRow; row++) {
+            classValues[row] = bin(combination.finish(classValues[row], sourceColumns.length));
+        }
+    }
+
+    /**
+     * Derives the class value of a record, whose source values are at the passed indices.
+     */
+    public double deriveClassValue(double[] record, int[] sourceIndices) {
+        double accumulated = combination.initialValue();
+        for (int sourceIndex : sourceIndices) {
+            accumulated = combination.accumulate(accumulated, record[sourceIndex]);
+        }
+        return bin(combination.finish(accumulated, sourceIndices.length));
+    }
+
+    public double deriveClassValue(Instance instance, int[] sourceIndices) {
+        double accumulated = combination.initialValue();
+        for (int sourceIndex : sourceIndices) {
+            accumulated = combination.accumulate(accumulated, instance.value(sourceIndex));
+        }
+        return bin(combination.finish(accumulated, sourceIndices.length));
+    }
+
+    private double bin(double value) {
+        if (Double.isNaN(value)) {
+            return Double.NaN;
+        }
+        int bin = 0;
+        while (bin < thresholds.length && value >= thresholds[bin]) {
+            bin++;
+        }
+        return bin;
+    }
+
+    void write(DataOutput output) throws IOException {
+        output.writeUTF(attributeName);
+        output.writeInt(sourceAttributeNames.length);
+        for (String sourceAttributeName : sourceAttributeNames) {
+            output.writeUTF(sourceAttributeName);
+        }
+        output.writeUTF(combination.name());
+        output.writeInt(thresholds.length);
+        for (double threshold : thresholds) {
+            output.writeDouble(threshold);
+        }
+        for (String label : labels) {
+            output.writeUTF(label);
+        }
+    }
+
+    static ClassDerivation read(DataInput input) throws IOException {
+        String attributeName = input.readUTF();
+        String[] sourceAttributeNames = new String[input.readInt()];
+        for (int i = 0; i < sourceAttributeNames.length; i++) {
+            sourceAttributeNames[i] = input.readUTF();
+        }
+        Combination combination = Combination.valueOf(input.readUTF());
+        double[] thresholds = new double[input.readInt()];
+        for (int i = 0; i < thresholds.length; i++) {
+            thresholds[i] = input.readDouble();
+        }
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i <= thresholds.length; i++) {
+            labels.add(input.readUTF());
+        }
+        return new ClassDerivation(attributeName, sourceAttributeNames, combination, thresholds, labels);
+    }
+}
@@ -1,14 +1,41 @@
 package thesis.engine;
 
+import thesis.engine.column.ColumnSnapshot;
+import thesis.engine.column.ColumnStore;
+import weka.core.AbstractInstance;
+import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.converters.ArffLoader.ArffReader;
 import weka.core.converters.ArffSaver;
 import weka.core.converters.ConverterUtils.DataSource;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.function.Consumer;
 
 public class FileProcessingEngine {
 
+    /**
+     * Reads ARFF and other formats known to Weka, or a column snapshot if the filename has its extension.
+     */
     public static Instances readDataSetFromFile(String filename) {
+        if (ColumnSnapshot.isSnapshotFile(filename)) {
+            return ColumnSnapshot.read(filename).toInstances();
+        }
         try {
             DataSource source = new DataSource(filename);
             return source.getDataSet();
@@ -17,7 +44,116 @@ public class FileProcessingEngine {
         }
     }
 
+    public static Instances readStructureFromFile(String filename) {
+        try {
+            DataSource source = new DataSource(filename);
+            return new Instances(source.getStructure(), 0);
+        } catch (Exception e) {
+            throw new RuntimeException("Data set structure could not be loaded from passed filename", e);
+        }
+    }
+
+    public static void readDataSetFromFileInChunks(String filename, int chunkSize, Consumer<Instances> chunkConsumer) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive but was " + chunkSize);
+        }
+
+        DataSource source;
+        Instances structure;
+        try {
+            source = new DataSource(filename);
+            structure = source.getStructure();
+        } catch (Exception e) {
+            throw new RuntimeException("Data set could not be loaded from passed filename", e);
+        }
+
+        Instances chunk = new Instances(structure, chunkSize);
+        boolean chunkEmitted = false;
+        while (source.hasMoreElements(structure)) {
+            chunk.add(source.nextElement(structure));
+            if (chunk.numInstances() == chunkSize) {
+                chunkConsumer.accept(chunk);
+                chunkEmitted = true;
+                chunk = new Instances(structure, chunkSize);
+            }
+        }
+        if (chunk.numInstances() > 0 || !chunkEmitted) {
+            chunkConsumer.accept(chunk);
+        }
+    }
+
+    /**
+     * Returns the byte offset of the first row of an ARFF file, i.e. of the line after the @data declaration.
+     */
+    public static long dataOffset(String filename) {
+        try (InputStream input = new BufferedInputStream(new FileInputStream(filename))) {
+            StringBuilder line = new StringBuilder();
+            long offset = 0;
+            int value;
+            while ((value = input.read()) != -1) {
+                offset++;
+                if (value != '\n') {
+                    line.append((char) value);
+                } else if (isDataDeclaration(line)) {
+                    return offset;
+                } else {
+                    line.setLength(0);
+                }
+            }
+            if (isDataDeclaration(line)) {
+                return offset;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Data set could not be loaded from passed filename", e);
+        }
+        throw new IllegalArgumentException("File " + filename + " has no @data declaration");
+    }
+
+    private static boolean isDataDeclaration(CharSequence line) {
+        return line.toString().trim().equalsIgnoreCase("@data");
+    }
+
+    /**
+     * Reads the rows of an ARFF file from the byte offset fromOffset (inclusive) to toOffset (exclusive) in chunks,
+     * without parsing the rows before. Both offsets have to be at the start of a row, e.g. the {@link #dataOffset}
+     * or the length the file had when it was read up to its end. Only nonempty chunks are passed to the consumer.
+     */
+    public static void readDataSetFromFileInChunks(String filename, Instances structure, long fromOffset, long toOffset,
+                                                   int chunkSize, Consumer<Instances> chunkConsumer) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("Chunk size must be positive but was " + chunkSize);
+        }
+        if (fromOffset > toOffset) {
+            throw new IllegalArgumentException("Offset " + fromOffset + " is after offset " + toOffset);
+        }
+
+        try (FileChannel channel = FileChannel.open(Paths.get(filename))) {
+            channel.position(fromOffset);
+            InputStream input = new BoundedInputStream(Channels.newInputStream(channel), toOffset - fromOffset);
+            ArffReader reader = new ArffReader(new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8)),
+                    structure, 0, chunkSize);
+            Instances chunk = new Instances(structure, chunkSize);
+            Instance instance;
+            while ((instance = reader.readInstance(structure)) != null) {
+                chunk.add(instance);
+                if (chunk.numInstances() == chunkSize) {
+                    chunkConsumer.accept(chunk);
+                    chunk = new Instances(structure, chunkSize);
+                }
+            }
+            if (chunk.numInstances() > 0) {
+                chunkConsumer.accept(chunk);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Data set could not be loaded from passed filename", e);
+        }
+    }
+
     public static void writeDataSetToFile(Instances dataSet, String filename) {
+        if (ColumnSnapshot.isSnapshotFile(filename)) {
+            ColumnSnapshot.write(ColumnStore.of(dataSet), filename);
+            return;
+        }
         try {
             ArffSaver arffSaver = new ArffSaver();
             arffSaver.setInstances(dataSet);
@@ -27,4 +163,65 @@ public class FileProcessingEngine {
             throw new RuntimeException("Data set could not be written to file", e);
         }
     }
+
+    /**
+     * Appends the rows of the data set to an ARFF file whose header matches the data set.
+     */
+    public static void appendDataSetToFile(Instances dataSet, String filename) {
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename, true), StandardCharsets.UTF_8))) {
+            for (Instance instance : dataSet) {
+                writer.write(instance.toStringMaxDecimalDigits(AbstractInstance.s_numericAfterDecimalPoint));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Data set could not be appended to file", e);
+        }
+    }
+
+    // Ends the stream after a number of bytes, so a reader stops at a given offset of the file
+    private static class BoundedInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BoundedInputStream(InputStream input, long length) {
+            super(input);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int value = super.read();
+            if (value != -1) {
+                remaining--;
+            }
+            return value;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int numRead = super.read(buffer, offset, (int) Math.min(length, remaining));
+            if (numRead > 0) {
+                remaining -= numRead;
+            }
+            return numRead;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long numSkipped = super.skip(Math.min(n, remaining));
+            remaining -= numSkipped;
+            return numSkipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(super.available(), remaining);
+        }
+    }
 }
@@ -0,0 +1,48 @@
+package thesis.engine;
+
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.converters.AbstractFileSaver;
+import weka.core.converters.ConverterUtils;
+import weka.core.converters.Saver;
+
+import java.io.File;
+
+public class IncrementalDataSetWriter implements AutoCloseable {
+
+    private final AbstractFileSaver saver;
+
+    public IncrementalDataSetWriter(String filename, Instances structure) {
+        this.saver = ConverterUtils.getSaverForFile(filename);
+        if (saver == null) {
+            throw new RuntimeException("No saver available for file " + filename);
+        }
+
+        try {
+            saver.setFile(new File(filename));
+            saver.setRetrieval(Saver.INCREMENTAL);
+            saver.setStructure(new Instances(structure, 0));
+        } catch (Exception e) {
+            throw new RuntimeException("Data set could not be written to file", e);
+        }
+    }
+
+    public void write(Instances chunk) {
+        try {
+            for (Instance instance : chunk) {
+                saver.writeIncremental(instance);
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("Data set could not be written to file", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            saver.writeIncremental(null);
+        } catch (Exception e) {
+            throw new RuntimeException("Data set could not be written to file", e);
+        }
+    }
+}
@@ -1,141 +1,528 @@
 package thesis.engine;
 
+import thesis.engine.column.ColumnStore;
+import thesis.engine.column.RowRanges;
+import thesis.engine.column.SparseColumn;
+import thesis.engine.metrics.PreProcessingMetrics;
+import thesis.engine.sampling.StratifiedDataSetBalancer;
+import thesis.engine.sampling.StratifiedReservoirSampler;
+import thesis.engine.statistics.AttributeStatistics;
+import thesis.engine.statistics.DataSetStatistics;
+import thesis.engine.statistics.PreProcessingState;
 import weka.core.Attribute;
 import weka.core.Instance;
 import weka.core.Instances;
 import weka.filters.Filter;
 import weka.filters.unsupervised.attribute.NumericToNominal;
-import weka.filters.unsupervised.attribute.Remove;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.function.ToDoubleFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
-import java.util.stream.DoubleStream;
 import java.util.stream.Stream;
 
 public class PreProcessingEngine {
 
+    private static final String ARFF_EXTENSION = ".arff";
+    private static final ClassDerivation DEFAULT_CLASS_DERIVATION = ClassDerivation.satisfaction("satisfaction");
+
+    // Exactly one of both representations is live: stages work on the columns and the
+    // data set is only rebuilt from them when it is requested.
     private Instances dataSet;
+    private ColumnStore columns;
+    private DataSetStatistics statistics;
+    private PreProcessingModel model;
+    private PreProcessingMetrics metrics = PreProcessingMetrics.DISABLED;
+    private int parallelism = 1;
+    private StratifiedReservoirSampler.Mode balancingMode = StratifiedReservoirSampler.Mode.UNDERSAMPLE;
+    private long seed = new Random().nextLong();
+    private double sparseThreshold = ColumnStore.DEFAULT_SPARSE_THRESHOLD;
+    private ClassDerivation classDerivation = DEFAULT_CLASS_DERIVATION;
 
     public PreProcessingEngine(Instances dataSet) {
         this.dataSet = dataSet;
     }
 
     public Instances getDataSet() {
+        if (dataSet == null) {
+            dataSet = columns.toInstances();
+            columns = null;
+        }
         return dataSet;
     }
 
+    ColumnStore getColumns() {
+        if (columns == null) {
+            columns = ColumnStore.of(dataSet);
+            columns.compressSparseColumns(sparseThreshold);
+            dataSet = null;
+        }
+        return columns;
+    }
+
+    public DataSetStatistics getStatistics() {
+        if (statistics == null) {
+            statistics = DataSetStatistics.of(getColumns());
+        }
+        return statistics;
+    }
+
+    public void setMetrics(PreProcessingMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Sets the number of threads the row-local stages are split across. Results do not depend on it.
+     */
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    public void setBalancingMode(StratifiedReservoirSampler.Mode balancingMode) {
+        this.balancingMode = balancingMode;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Sets the seed balancing samples from, so that runs with the same seed keep the same rows.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Sets the fraction of missing or 0 values from which a column is stored sparsely. Values above 1 keep
+     * every column dense.
+     */
+    public void setSparseThreshold(double sparseThreshold) {
+        if (Double.isNaN(sparseThreshold) || sparseThreshold < 0) {
+            throw new IllegalArgumentException("Sparse threshold must not be negative but was " + sparseThreshold);
+        }
+        this.sparseThreshold = sparseThreshold;
+    }
+
+    /**
+     * Sets how {@link #preProcess} derives the class attribute, by default the satisfaction of the customers. The
+     * chunked and delta runs take the derivation as an argument.
+     */
+    public void setClassDerivation(ClassDerivation classDerivation) {
+        this.classDerivation = classDerivation;
+    }
+
+    private void invalidateStatistics() {
+        this.statistics = null;
+    }
+
     public void preProcess(String[] unneededAttributeNames, String[] replaceableAttributeNames,
                            double minNormalizeValue, double maxNormalizeValue)  {
-        computeNewClassAttribute("satisfaction");
-        addClassAttributeToDataSet(dataSet.attribute(dataSet.numAttributes()));
+        PreProcessingPipeline pipeline = createPipeline(classDerivation, unneededAttributeNames, replaceableAttributeNames,
+                minNormalizeValue, maxNormalizeValue, parallelism);
+        DataSetStatistics[] sourceStatistics = new DataSetStatistics[1];
+        runStage("computeStatistics", () -> sourceStatistics[0] = DataSetStatistics.of(getDataSet()));
+        runStage("fitModel", () -> this.model = pipeline.fit(getDataSet(), sourceStatistics[0]));
+        runStage("preProcessRows", () -> {
+            if (hasSparseAttributes()) {
+                preProcessColumns(unneededAttributeNames, replaceableAttributeNames, minNormalizeValue, maxNormalizeValue);
+            } else {
+                this.columns = pipeline.run(getDataSet(), sourceStatistics[0]);
+                this.dataSet = null;
+                invalidateStatistics();
+            }
+        });
+        //normalizeClassAttributeValues();
+        runStage("balanceDataSet", this::balanceDataSet);
+    }
+
+    /**
+     * Returns the model fitted by the last {@link #preProcess}, which transforms further records the same way.
+     */
+    public PreProcessingModel getModel() {
+        if (model == null) {
+            throw new IllegalStateException("Data set has not been preprocessed");
+        }
+        return model;
+    }
+
+    // Counts missing values and zeros like the column store does when it compresses the columns
+    private boolean hasSparseAttributes() {
+        Instances dataSet = getDataSet();
+        long[] numMissing = new long[dataSet.numAttributes()];
+        long[] numZeros = new long[dataSet.numAttributes()];
+        for (Instance instance : dataSet) {
+            for (int attributeIndex = 0; attributeIndex < dataSet.numAttributes(); attributeIndex++) {
+                double value = instance.value(attributeIndex);
+                if (Double.isNaN(value)) {
+                    numMissing[attributeIndex]++;
+                } else if (SparseColumn.isZero(value)) {
+                    numZeros[attributeIndex]++;
+                }
+            }
+        }
+        for (int attributeIndex = 0; attributeIndex < dataSet.numAttributes(); attributeIndex++) {
+            if (attributeIndex != dataSet.classIndex() && SparseColumn.isSparse(numMissing[attributeIndex],
+                    numZeros[attributeIndex], dataSet.numInstances(), sparseThreshold)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Runs the pipeline stages one after another on the columns, which keeps mostly missing columns sparse
+     * instead of materializing them row by row. Produces the same values as the pipeline.
+     */
+    private void preProcessColumns(String[] unneededAttributeNames, String[] replaceableAttributeNames,
+                                   double minNormalizeValue, double maxNormalizeValue) {
+        String sourceClassName = getDataSet().classIndex() == -1 ? null : getDataSet().classAttribute().name();
+        deriveClassAttribute(classDerivation);
         filterUnneededAttributes(unneededAttributeNames);
+        getColumns().setClassIndex(getColumns().numColumns() - 1);
+        // Like the pipeline, normalize by the bounds before imputation, which a rounded mean could exceed,
+        // and keep a source class attribute unnormalized
+        DataSetStatistics statistics = getStatistics();
         replaceMissingAttributeValues(parseAttributeNames(replaceableAttributeNames));
-        normalizeAttributeValues(minNormalizeValue, maxNormalizeValue);
-        //normalizeClassAttributeValues();
-        balanceDataSet();
+        int sourceClassColumn = sourceClassName == null ? -1 : getColumns().indexOf(sourceClassName);
+        normalizeAttributeValues(statistics, minNormalizeValue, maxNormalizeValue, sourceClassColumn);
+    }
+
+    private static PreProcessingPipeline createPipeline(ClassDerivation classDerivation, String[] unneededAttributeNames,
+                                                        String[] replaceableAttributeNames, double minNormalizeValue,
+                                                        double maxNormalizeValue, int parallelism) {
+        return PreProcessingPipeline.builder()
+                .deriveClassAttribute(classDerivation)
+                .removeAttributes(unneededAttributeNames)
+                .replaceMissingValues(replaceableAttributeNames)
+                .normalize(minNormalizeValue, maxNormalizeValue)
+                .parallelism(parallelism)
+                .build();
+    }
+
+    /**
+     * Preprocesses a data set file chunk by chunk, so that memory usage depends on the chunk size
+     * rather than on the file size. A first pass over the file only collects the attribute statistics
+     * needed for imputation and normalization. Balancing needs the whole data set and is not applied.
+     */
+    public static void preProcessIncrementally(String inputFilename, String outputFilename, int chunkSize,
+                                               String[] unneededAttributeNames, String[] replaceableAttributeNames,
+                                               double minNormalizeValue, double maxNormalizeValue) {
+        preProcessIncrementally(inputFilename, outputFilename, chunkSize, DEFAULT_CLASS_DERIVATION, unneededAttributeNames,
+                replaceableAttributeNames, minNormalizeValue, maxNormalizeValue);
+    }
+
+    public static void preProcessIncrementally(String inputFilename, String outputFilename, int chunkSize,
+                                               ClassDerivation classDerivation, String[] unneededAttributeNames,
+                                               String[] replaceableAttributeNames,
+                                               double minNormalizeValue, double maxNormalizeValue) {
+        Instances structure = FileProcessingEngine.readStructureFromFile(inputFilename);
+        DataSetStatistics statistics = DataSetStatistics.forStructure(structure);
+        FileProcessingEngine.readDataSetFromFileInChunks(inputFilename, chunkSize, statistics::accumulate);
+
+        PreProcessingPipeline pipeline = createPipeline(classDerivation, unneededAttributeNames,
+                replaceableAttributeNames, minNormalizeValue, maxNormalizeValue, 1);
+        Instances processedStructure = pipeline.run(structure, statistics).getHeader();
+        try (IncrementalDataSetWriter writer = new IncrementalDataSetWriter(outputFilename, processedStructure)) {
+            FileProcessingEngine.readDataSetFromFileInChunks(inputFilename, chunkSize, chunk ->
+                    writer.write(pipeline.run(chunk, statistics).toInstances()));
+        }
+    }
+
+    /**
+     * Preprocesses only the rows appended to the input file since the last delta run and merges them into the
+     * output file of that run. The statistics, the number of processed rows, the byte offset of the first
+     * unprocessed input row, the output length and the class counts are kept in the state file between runs;
+     * without a state file or output file everything is processed. Reading starts at that offset, so rows
+     * processed before are not parsed again. Rows written before are rewritten only if the min or max of a
+     * normalized attribute changed, and only rescaled then: their missing values stay imputed with the mean of the
+     * run that wrote them, while appended rows get the mean over all rows processed so far.
+     * <p>
+     * The state is written after the output, so a run that failed while appending leaves the output longer than
+     * the state records and the next run truncates it. A rewritten output is moved into place after the state.
+     */
+    public static PreProcessingState preProcessDelta(String inputFilename, String outputFilename, String stateFilename,
+                                                     int chunkSize, String[] unneededAttributeNames,
+                                                     String[] replaceableAttributeNames,
+                                                     double minNormalizeValue, double maxNormalizeValue) {
+        return preProcessDelta(inputFilename, outputFilename, stateFilename, chunkSize, DEFAULT_CLASS_DERIVATION,
+                unneededAttributeNames, replaceableAttributeNames, minNormalizeValue, maxNormalizeValue);
+    }
+
+    /**
+     * Like {@link #preProcessDelta(String, String, String, int, String[], String[], double, double)}, deriving the
+     * class attribute as passed. All delta runs on one output have to derive it the same way.
+     */
+    public static PreProcessingState preProcessDelta(String inputFilename, String outputFilename, String stateFilename,
+                                                     int chunkSize, ClassDerivation classDerivation,
+                                                     String[] unneededAttributeNames, String[] replaceableAttributeNames,
+                                                     double minNormalizeValue, double maxNormalizeValue) {
+        if (!outputFilename.endsWith(ARFF_EXTENSION)) {
+            throw new IllegalArgumentException("Delta output file " + outputFilename + " has to be an ARFF file");
+        }
+        String temporaryFilename = outputFilename.substring(0, outputFilename.length() - ARFF_EXTENSION.length())
+                + ".tmp" + ARFF_EXTENSION;
+        Instances structure = FileProcessingEngine.readStructureFromFile(inputFilename);
+        PreProcessingState previousState = null;
+        if (new File(stateFilename).exists()) {
+            previousState = PreProcessingState.read(stateFilename);
+            recoverOutputFile(outputFilename, temporaryFilename, previousState.getOutputLength());
+        }
+        if (previousState == null || !new File(outputFilename).exists()) {
+            previousState = new PreProcessingState(0, FileProcessingEngine.dataOffset(inputFilename), 0,
+                    DataSetStatistics.forStructure(structure), new long[0]);
+        }
+        if (!previousState.getStatistics().matches(structure)) {
+            throw new IllegalArgumentException("Preprocessing state " + stateFilename + " does not match the attributes of "
+                    + inputFilename);
+        }
+        long numPreviousRows = previousState.getNumRows();
+        long inputOffset = previousState.getInputOffset();
+        // Rows appended while this run is reading are left to the next run
+        long inputLength = new File(inputFilename).length();
+        if (inputLength < inputOffset) {
+            throw new IllegalArgumentException("Input file " + inputFilename + " has fewer rows than were processed before");
+        }
+
+        DataSetStatistics statistics = previousState.getStatistics().copy();
+        long[] numRows = {numPreviousRows};
+        FileProcessingEngine.readDataSetFromFileInChunks(inputFilename, structure, inputOffset, inputLength, chunkSize, chunk -> {
+            statistics.accumulate(chunk);
+            numRows[0] += chunk.numInstances();
+        });
+
+        PreProcessingPipeline pipeline = createPipeline(classDerivation, unneededAttributeNames,
+                replaceableAttributeNames, minNormalizeValue, maxNormalizeValue, 1);
+        Instances processedStructure = pipeline.run(structure, statistics).getHeader();
+        long[][] classCounts = {previousState.getClassCounts()};
+        Function<Instances, Instances> processAppendedChunk = chunk -> {
+            Instances processedChunk = pipeline.run(chunk, statistics).toInstances();
+            classCounts[0] = countClassValues(processedChunk, classCounts[0]);
+            return processedChunk;
+        };
+
+        PreProcessingState state;
+        if (numPreviousRows == 0 || pipeline.isRescalingNeeded(structure, previousState.getStatistics(), statistics)) {
+            DataSetStatistics previousStatistics = previousState.getStatistics();
+            try (IncrementalDataSetWriter writer = new IncrementalDataSetWriter(temporaryFilename, processedStructure)) {
+                if (numPreviousRows > 0) {
+                    FileProcessingEngine.readDataSetFromFileInChunks(outputFilename, chunkSize, processedChunk -> {
+                        processedChunk.setClassIndex(processedStructure.classIndex());
+                        pipeline.rescale(processedChunk, structure, previousStatistics, statistics);
+                        writer.write(processedChunk);
+                    });
+                }
+                FileProcessingEngine.readDataSetFromFileInChunks(inputFilename, structure, inputOffset, inputLength, chunkSize,
+                        chunk -> writer.write(processAppendedChunk.apply(chunk)));
+            }
+            state = new PreProcessingState(numRows[0], inputLength, new File(temporaryFilename).length(), statistics,
+                    classCounts[0]);
+            state.write(stateFilename);
+            moveFile(temporaryFilename, outputFilename);
+        } else {
+            FileProcessingEngine.readDataSetFromFileInChunks(inputFilename, structure, inputOffset, inputLength, chunkSize,
+                    chunk -> FileProcessingEngine.appendDataSetToFile(processAppendedChunk.apply(chunk), outputFilename));
+            state = new PreProcessingState(numRows[0], inputLength, new File(outputFilename).length(), statistics,
+                    classCounts[0]);
+            state.write(stateFilename);
+        }
+        return state;
+    }
+
+    /**
+     * Brings the output file back to the length recorded in the state of the last successful run: a rewritten
+     * output the run could not move into place after writing its state is moved, rows a failed run appended are
+     * truncated.
+     */
+    private static void recoverOutputFile(String outputFilename, String temporaryFilename, long outputLength) {
+        File temporaryFile = new File(temporaryFilename);
+        if (temporaryFile.exists()) {
+            if (temporaryFile.length() == outputLength) {
+                moveFile(temporaryFilename, outputFilename);
+            } else if (!temporaryFile.delete()) {
+                throw new RuntimeException("An error occurred when trying to delete file " + temporaryFilename);
+            }
+        }
+        File outputFile = new File(outputFilename);
+        if (!outputFile.exists() || outputFile.length() == outputLength) {
+            return;
+        }
+        if (outputFile.length() < outputLength) {
+            throw new IllegalArgumentException("Output file " + outputFilename + " is shorter than the preprocessing state records");
+        }
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE)) {
+            channel.truncate(outputLength);
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to truncate file " + outputFilename, e);
+        }
+    }
+
+    private static long[] countClassValues(Instances dataSet, long[] classCounts) {
+        long[] counts = Arrays.copyOf(classCounts, Math.max(classCounts.length, dataSet.classAttribute().numValues()));
+        for (Instance instance : dataSet) {
+            if (!instance.classIsMissing()) {
+                counts[(int) instance.classValue()]++;
+            }
+        }
+        return counts;
+    }
+
+    private static void moveFile(String sourceFilename, String targetFilename) {
+        try {
+            Files.move(Paths.get(sourceFilename), Paths.get(targetFilename), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to replace file " + targetFilename, e);
+        }
+    }
+
+    private void runStage(String stageName, Runnable stage) {
+        metrics.stageStarted(stageName, numRows());
+        stage.run();
+        metrics.stageFinished(stageName, numRows());
+    }
+
+    private int numRows() {
+        return columns != null ? columns.numRows() : dataSet.numInstances();
     }
 
     public void computeNewClassAttribute(String name) {
-        List<String> classAttributeValues = new ArrayList<>();
-        classAttributeValues.add("unsatisfied");
-        classAttributeValues.add("neutral");
-        classAttributeValues.add("satisfied");
-        dataSet.insertAttributeAt(new Attribute(name, classAttributeValues), dataSet.numAttributes());
+        deriveClassAttribute(ClassDerivation.satisfaction(name));
+    }
 
-        Collections.list(dataSet.enumerateInstances())
-                .forEach(instance -> {
-                    double rating = instance.value(getAttributeIndex("rating"));
-                    double recommendationScore = instance.value(getAttributeIndex("recommendation_score"));
-                    double overallSatisfaction = (rating + recommendationScore) / 2;
-                    if (overallSatisfaction < 5.0) {
-                        instance.setValue(dataSet.numAttributes() - 1, "unsatisfied");
-                    } else if (overallSatisfaction >= 6.5) {
-                        instance.setValue(dataSet.numAttributes() - 1, "satisfied");
-                    } else {
-                        instance.setValue(dataSet.numAttributes() - 1, "neutral");
-                    }
-                });
+    /**
+     * Appends the derived class attribute. The source columns are resolved once and read whole.
+     */
+    public void deriveClassAttribute(ClassDerivation classDerivation) {
+        ColumnStore columns = getColumns();
+        double[][] sourceColumns = Stream.of(classDerivation.getSourceAttributeNames())
+                .map(attributeName -> columns.column(getAttributeIndex(attributeName)))
+                .toArray(double[][]::new);
+        double[] classValues = new double[columns.numRows()];
+
+        RowRanges.forEach(classValues.length, parallelism, (fromRow, toRow) ->
+                classDerivation.derive(sourceColumns, classValues, fromRow, toRow));
+        columns.addColumn(classDerivation.createAttribute(), classValues);
+        invalidateStatistics();
     }
 
     public void addClassAttributeToDataSet(Attribute classAttribute) {
-        if (dataSet.classIndex() == -1) {
+        if (columns != null) {
+            if (columns.classIndex() == -1) {
+                columns.setClassIndex(classAttribute.index());
+            }
+        } else if (dataSet.classIndex() == -1) {
             dataSet.setClass(classAttribute);
         }
     }
 
     private Set<Attribute> parseAttributeNames(String[] attributeNames) {
         return Stream.of(attributeNames)
-                .map(attributeName ->
-                        Collections.list(dataSet.enumerateAttributes())
-                                .stream()
-                                .filter(attr -> attr.name().equalsIgnoreCase(attributeName))
-                                .findFirst()
-                                .get())
+                .map(attributeName -> getColumns().attribute(getAttributeIndex(attributeName)))
                 .collect(Collectors.toSet());
     }
 
     void filterUnneededAttributes(String[] attributeNames) {
-        Remove removeFilter = new Remove();
-        removeFilter.setAttributeIndicesArray(getAttributeIndices(attributeNames));
-
-        try {
-            removeFilter.setInputFormat(dataSet);
-            this.dataSet = Filter.useFilter(dataSet, removeFilter);
-        } catch (Exception e) {
-            throw new RuntimeException("An error occurred when trying to remove attributes", e);
-        }
+        getColumns().removeColumns(getAttributeIndices(attributeNames));
+        invalidateStatistics();
     }
 
     private int[] getAttributeIndices(String[] attributeNames) {
         return Stream
                 .of(attributeNames)
-                .map(dataSet::attribute)
-                .mapToInt(Attribute::index)
-                .map(index -> index--).toArray();
+                .mapToInt(this::getAttributeIndex)
+                .toArray();
     }
 
     private int getAttributeIndex(String attributeName) {
-        return Collections.list(dataSet.enumerateAttributes())
-                .stream()
-                .filter(attribute -> attribute.name().equalsIgnoreCase(attributeName))
-                .mapToInt(Attribute::index)
-                .findFirst()
-                .orElseThrow(() -> new RuntimeException("An error occurred when trying to get attribute index for attribute " + attributeName));
+        int attributeIndex = getColumns().indexOf(attributeName);
+        if (attributeIndex == -1) {
+            throw new RuntimeException("An error occurred when trying to get attribute index for attribute " + attributeName);
+        }
+        return attributeIndex;
     }
 
     void replaceMissingAttributeValues(Set<Attribute> replaceableAttributes) {
-        Enumeration<Instance> instanceEnumeration = dataSet.enumerateInstances();
+        DataSetStatistics statistics = getStatistics();
+        ColumnStore columns = getColumns();
 
-        while (instanceEnumeration.hasMoreElements()) {
-            Instance instance = instanceEnumeration.nextElement();
+        int[] replaceableColumns = replaceableAttributes.stream()
+                .mapToInt(Attribute::index)
+                .filter(column -> !columns.isSparse(column))
+                .toArray();
+        double[] replacementValues = Arrays.stream(replaceableColumns)
+                .mapToDouble(column -> statistics.get(columns.attribute(column)).getMean())
+                .toArray();
 
-            for (int i = 0; i < instance.numAttributes(); i++) {
-                Attribute currentAttribute = instance.attribute(i);
-                if (instance.isMissing(i) && replaceableAttributes.contains(currentAttribute)) {
-                    instance.setValue(currentAttribute, getReplacementValue(currentAttribute));
-                }
+        // Sparse columns replace their missing default once and their missing entries only
+        for (Attribute attribute : replaceableAttributes) {
+            SparseColumn sparseColumn = columns.sparseColumn(attribute.index());
+            if (sparseColumn != null) {
+                double replacementValue = statistics.get(attribute).getMean();
+                sparseColumn.transform(value -> Double.isNaN(value) ? replacementValue : value);
             }
         }
+
+        RowRanges.forEach(columns.numRows(), parallelism, (fromRow, toRow) -> {
+            for (int i = 0; i < replaceableColumns.length; i++) {
+                for (int row = fromRow; row < toRow; row++) {
+                    if (columns.isMissing(replaceableColumns[i], row)) {
+                        columns.setValue(replaceableColumns[i], row, replacementValues[i]);
+                    }
+                }
+            }
+        });
+        invalidateStatistics();
     }
 
     void normalizeAttributeValues(double min, double max) {
-        Collections.list(dataSet.enumerateInstances())
-                .forEach(instance -> Collections.list(instance.enumerateAttributes())
-                        .stream()
-                        .filter(attribute -> attribute.index() != dataSet.classIndex())
-                        .forEach(attribute -> {
-                    double minOld = getExtremeValueOfAttribute(attribute, this::getMinValueOfStream);
-                    double maxOld = getExtremeValueOfAttribute(attribute, this::getMaxValueOfStream);
-                    double normalizedAttributeValue = getNormalizedAttributeValue(
-                            instance.value(attribute),
-                            minOld, maxOld,
-                            min, max);
-                    instance.setValue(attribute, normalizedAttributeValue);
-                }));
+        normalizeAttributeValues(getStatistics(), min, max, -1);
+    }
+
+    private void normalizeAttributeValues(DataSetStatistics statistics, double min, double max, int unnormalizedColumn) {
+        ColumnStore columns = getColumns();
+
+        List<double[]> normalizedColumns = new ArrayList<>();
+        List<AttributeStatistics> normalizedColumnStatistics = new ArrayList<>();
+        for (int column = 0; column < columns.numColumns(); column++) {
+            AttributeStatistics attributeStatistics = statistics.get(columns.attribute(column));
+            if (column == columns.classIndex() || column == unnormalizedColumn || !attributeStatistics.hasValues()) {
+                continue;
+            }
+            SparseColumn sparseColumn = columns.sparseColumn(column);
+            if (sparseColumn != null) {
+                double minOld = attributeStatistics.getMin();
+                double maxOld = attributeStatistics.getMax();
+                sparseColumn.transform(value -> getNormalizedAttributeValue(value, minOld, maxOld, min, max));
+            } else {
+                normalizedColumns.add(columns.column(column));
+                normalizedColumnStatistics.add(attributeStatistics);
+            }
+        }
+
+        RowRanges.forEach(columns.numRows(), parallelism, (fromRow, toRow) -> {
+            for (int i = 0; i < normalizedColumns.size(); i++) {
+                double[] values = normalizedColumns.get(i);
+                double minOld = normalizedColumnStatistics.get(i).getMin();
+                double maxOld = normalizedColumnStatistics.get(i).getMax();
+                for (int row = fromRow; row < toRow; row++) {
+                    values[row] = getNormalizedAttributeValue(values[row], minOld, maxOld, min, max);
+                }
+            }
+        });
+        invalidateStatistics();
     }
 
     void normalizeClassAttributeValues() {
+        Instances dataSet = getDataSet();
         Collections.list(dataSet.enumerateInstances())
                 .forEach(instance -> instance.setClassValue(instance.classValue() < 4 ? 0 : 1));
 
@@ -145,51 +532,20 @@ public class PreProcessingEngine {
         try {
             numericToNominal.setInputFormat(dataSet);
             this.dataSet = Filter.useFilter(dataSet, numericToNominal);
+            invalidateStatistics();
         } catch (Exception e) {
             throw new RuntimeException("Could not make class attribute " + dataSet.classAttribute().name() + " nominal.", e);
         }
     }
 
     void balanceDataSet() {
-        int numInstancesDissatisfied = (int) filterInstancesByClassValue(0).count();
-        List<Instance> instancesSatisfied = filterInstancesByClassValue(1).collect(Collectors.toList());
-        Collections.shuffle(instancesSatisfied);
-        instancesSatisfied = instancesSatisfied.subList(0, numInstancesDissatisfied);
-        this.dataSet.removeIf(instance -> instance.classValue() == 1);
-        this.dataSet.addAll(instancesSatisfied);
-    }
-
-    private Stream<Instance> filterInstancesByClassValue(double classValue) {
-        return Collections
-                .list(dataSet.enumerateInstances())
-                .stream()
-                .filter(instance -> instance.classValue() == classValue);
+        ColumnStore columns = getColumns();
+        columns.selectRows(StratifiedDataSetBalancer.selectRows(columns, balancingMode, seed));
+        invalidateStatistics();
     }
 
-    private double getExtremeValueOfAttribute(Attribute attribute, ToDoubleFunction<DoubleStream> getExtremeValueOfStream) {
-        return getExtremeValueOfStream.applyAsDouble(Collections.list(dataSet.enumerateInstances())
-                .stream()
-                .filter(instance -> !instance.isMissing(attribute))
-                .mapToDouble(instance -> instance.value(attribute)));
-    }
-
-    private double getMaxValueOfStream(DoubleStream stream) {
-        return stream.max().orElseThrow(() -> new RuntimeException("No max value could be found in stream."));
-    }
-
-    private double getMinValueOfStream(DoubleStream stream) {
-        return stream.min().orElseThrow(() -> new RuntimeException("No min value could be found in stream."));
-    }
-
-    private double getNormalizedAttributeValue(double value, double minOld, double maxOld, double minNew, double maxNew) {
+    static double getNormalizedAttributeValue(double value, double minOld, double maxOld, double minNew, double maxNew) {
         return ((value - minOld) / (maxOld - minOld)) * (maxNew - minNew) + minNew;
     }
 
-    private double getReplacementValue(Attribute attribute) {
-        return Collections.list(dataSet.enumerateInstances())
-                .stream()
-                .filter(instance -> !instance.isMissing(attribute))
-                .collect(Collectors.averagingDouble(x -> x.value(attribute)));
-    }
-
 }
@@ -0,0 +1,290 @@
+package thesis.engine;
+
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Preprocessing fitted by a batch run: the imputation means, the normalization bounds and the attributes kept
+ * from the source data set. Transforms single records or micro-batches into the output columns of that run
+ * without allocating and without the training data. The batch run transforms its rows through the same model,
+ * so the values are identical. Models are immutable and can be shared between threads.
+ */
+public class PreProcessingModel {
+
+    private static final int MAGIC = 0x50504d44;
+    private static final int VERSION = 2;
+    // Source index of the derived class column
+    static final int DERIVED_CLASS = -1;
+
+    private final Instances sourceHeader;
+    private final Instances outputHeader;
+    private final int[] sourceIndices;
+    private final double[] replacementValues;
+    private final boolean[] isNormalized;
+    private final double[] minOldValues;
+    private final double[] maxOldValues;
+    private final double minNormalizeValue, maxNormalizeValue;
+    private final ClassDerivation classDerivation;
+    private final int[] classSourceIndices;
+
+    /**
+     * Takes ownership of the arrays, which but for the source indices of the class derivation hold one entry per
+     * output column. Missing values of columns with a NaN replacement value are kept.
+     */
+    PreProcessingModel(Instances sourceHeader, Instances outputHeader, int[] sourceIndices, double[] replacementValues,
+                       boolean[] isNormalized, double[] minOldValues, double[] maxOldValues,
+                       double minNormalizeValue, double maxNormalizeValue,
+                       ClassDerivation classDerivation, int[] classSourceIndices) {
+        this.sourceHeader = new Instances(sourceHeader, 0);
+        this.outputHeader = new Instances(outputHeader, 0);
+        this.sourceIndices = sourceIndices;
+        this.replacementValues = replacementValues;
+        this.isNormalized = isNormalized;
+        this.minOldValues = minOldValues;
+        this.maxOldValues = maxOldValues;
+        this.minNormalizeValue = minNormalizeValue;
+        this.maxNormalizeValue = maxNormalizeValue;
+        this.classDerivation = classDerivation;
+        this.classSourceIndices = classSourceIndices;
+    }
+
+    public int numSourceValues() {
+        return sourceHeader.numAttributes();
+    }
+
+    public int numOutputValues() {
+        return sourceIndices.length;
+    }
+
+    public Instances getSourceHeader() {
+        return new Instances(sourceHeader, 0);
+    }
+
+    public Instances getOutputHeader() {
+        return new Instances(outputHeader, 0);
+    }
+
+    /**
+     * Returns whether the structure has the attributes, in the same order and of the same types, the model was
+     * fitted on.
+     */
+    public boolean matches(Instances structure) {
+        if (structure.numAttributes() != sourceHeader.numAttributes()) {
+            return false;
+        }
+        for (int attributeIndex = 0; attributeIndex < structure.numAttributes(); attributeIndex++) {
+            Attribute attribute = structure.attribute(attributeIndex);
+            Attribute sourceAttribute = sourceHeader.attribute(attributeIndex);
+            if (!attribute.name().equals(sourceAttribute.name()) || attribute.type() != sourceAttribute.type()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Transforms a record given by its values in the order of the source attributes, missing values as NaN.
+     */
+    public void transform(double[] sourceValues, double[] output) {
+        checkLengths(sourceValues.length, output.length);
+        for (int column = 0; column < sourceIndices.length; column++) {
+            int sourceIndex = sourceIndices[column];
+            output[column] = sourceIndex == DERIVED_CLASS
+                    ? classDerivation.deriveClassValue(sourceValues, classSourceIndices)
+                    : transformValue(column, sourceValues[sourceIndex]);
+        }
+    }
+
+    public void transform(Instance instance, double[] output) {
+        checkLengths(instance.numAttributes(), output.length);
+        for (int column = 0; column < sourceIndices.length; column++) {
+            int sourceIndex = sourceIndices[column];
+            output[column] = sourceIndex == DERIVED_CLASS
+                    ? classDerivation.deriveClassValue(instance, classSourceIndices)
+                    : transformValue(column, instance.value(sourceIndex));
+        }
+    }
+
+    /**
+     * Transforms a micro-batch, writing the values of each row to the output row of the same index.
+     */
+    public void transform(Instances batch, double[][] outputs) {
+        if (outputs.length < batch.numInstances()) {
+            throw new IllegalArgumentException("Output holds " + outputs.length + " rows but " + batch.numInstances()
+                    + " are needed");
+        }
+        for (int row = 0; row < batch.numInstances(); row++) {
+            transform(batch.instance(row), outputs[row]);
+        }
+    }
+
+    private double transformValue(int column, double value) {
+        if (Double.isNaN(value)) {
+            value = replacementValues[column];
+        }
+        if (isNormalized[column]) {
+            value = PreProcessingEngine.getNormalizedAttributeValue(value,
+                    minOldValues[column], maxOldValues[column], minNormalizeValue, maxNormalizeValue);
+        }
+        return value;
+    }
+
+    private void checkLengths(int numSourceValues, int numOutputValues) {
+        if (numSourceValues != numSourceValues()) {
+            throw new IllegalArgumentException("Record has " + numSourceValues + " values but the model was fitted on "
+                    + numSourceValues() + " attributes");
+        }
+        if (numOutputValues < numOutputValues()) {
+            throw new IllegalArgumentException("Output holds " + numOutputValues + " values but " + numOutputValues()
+                    + " are needed");
+        }
+    }
+
+    /**
+     * Returns a model that leaves out the passed output attributes, e.g. those an attribute selection removes.
+     */
+    public PreProcessingModel withoutAttributes(String... attributeNames) {
+        Set<Integer> removedColumns = new HashSet<>();
+        for (String attributeName : attributeNames) {
+            Attribute attribute = outputHeader.attribute(attributeName);
+            if (attribute == null) {
+                throw new IllegalArgumentException("Model has no output attribute " + attributeName);
+            }
+            removedColumns.add(attribute.index());
+        }
+        int[] keptColumns = new int[sourceIndices.length - removedColumns.size()];
+        for (int column = 0, keptColumn = 0; column < sourceIndices.length; column++) {
+            if (!removedColumns.contains(column)) {
+                keptColumns[keptColumn++] = column;
+            }
+        }
+
+        Instances header = new Instances(outputHeader, 0);
+        removedColumns.stream()
+                .sorted((first, second) -> Integer.compare(second, first))
+                .forEach(column -> {
+                    if (header.classIndex() == column) {
+                        header.setClassIndex(-1);
+                    }
+                    header.deleteAttributeAt(column);
+                });
+        return new PreProcessingModel(sourceHeader, header, select(sourceIndices, keptColumns),
+                select(replacementValues, keptColumns), select(isNormalized, keptColumns),
+                select(minOldValues, keptColumns), select(maxOldValues, keptColumns),
+                minNormalizeValue, maxNormalizeValue, classDerivation, classSourceIndices);
+    }
+
+    private static int[] select(int[] values, int[] indices) {
+        return Arrays.stream(indices).map(index -> values[index]).toArray();
+    }
+
+    private static double[] select(double[] values, int[] indices) {
+        return Arrays.stream(indices).mapToDouble(index -> values[index]).toArray();
+    }
+
+    private static boolean[] select(boolean[] values, int[] indices) {
+        boolean[] selected = new boolean[indices.length];
+        for (int i = 0; i < indices.length; i++) {
+            selected[i] = values[indices[i]];
+        }
+        return selected;
+    }
+
+    public void write(String filename) {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filename)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            writeHeader(output, sourceHeader);
+            writeHeader(output, outputHeader);
+            output.writeInt(sourceIndices.length);
+            for (int column = 0; column < sourceIndices.length; column++) {
+                output.writeInt(sourceIndices[column]);
+                output.writeDouble(replacementValues[column]);
+                output.writeBoolean(isNormalized[column]);
+                output.writeDouble(minOldValues[column]);
+                output.writeDouble(maxOldValues[column]);
+            }
+            output.writeDouble(minNormalizeValue);
+            output.writeDouble(maxNormalizeValue);
+            output.writeBoolean(classDerivation != null);
+            if (classDerivation != null) {
+                classDerivation.write(output);
+                for (int classSourceIndex : classSourceIndices) {
+                    output.writeInt(classSourceIndex);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to write preprocessing model " + filename, e);
+        }
+    }
+
+    public static PreProcessingModel read(String filename) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IllegalArgumentException("File " + filename + " is not a preprocessing model of version " + VERSION);
+            }
+            Instances sourceHeader = readHeader(input);
+            Instances outputHeader = readHeader(input);
+            int numColumns = input.readInt();
+            int[] sourceIndices = new int[numColumns];
+            double[] replacementValues = new double[numColumns];
+            boolean[] isNormalized = new boolean[numColumns];
+            double[] minOldValues = new double[numColumns];
+            double[] maxOldValues = new double[numColumns];
+            for (int column = 0; column < numColumns; column++) {
+                sourceIndices[column] = input.readInt();
+                replacementValues[column] = input.readDouble();
+                isNormalized[column] = input.readBoolean();
+                minOldValues[column] = input.readDouble();
+                maxOldValues[column] = input.readDouble();
+            }
+            double minNormalizeValue = input.readDouble();
+            double maxNormalizeValue = input.readDouble();
+            ClassDerivation classDerivation = null;
+            int[] classSourceIndices = new int[0];
+            if (input.readBoolean()) {
+                classDerivation = ClassDerivation.read(input);
+                classSourceIndices = new int[classDerivation.getSourceAttributeNames().length];
+                for (int i = 0; i < classSourceIndices.length; i++) {
+                    classSourceIndices[i] = input.readInt();
+                }
+            }
+            return new PreProcessingModel(sourceHeader, outputHeader, sourceIndices, replacementValues, isNormalized,
+                    minOldValues, maxOldValues, minNormalizeValue, maxNormalizeValue, classDerivation, classSourceIndices);
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to read preprocessing model " + filename, e);
+        }
+    }
+
+    // Headers are stored as ARFF headers, which keep the attribute types and nominal values
+    private static void writeHeader(DataOutput output, Instances header) throws IOException {
+        byte[] arffHeader = new Instances(header, 0).toString().getBytes(StandardCharsets.UTF_8);
+        output.writeInt(arffHeader.length);
+        output.write(arffHeader);
+        output.writeInt(header.classIndex());
+    }
+
+    private static Instances readHeader(DataInput input) throws IOException {
+        byte[] arffHeader = new byte[input.readInt()];
+        input.readFully(arffHeader);
+        Instances header = new Instances(new StringReader(new String(arffHeader, StandardCharsets.UTF_8)));
+        header.setClassIndex(input.readInt());
+        return header;
+    }
+}
@@ -0,0 +1,272 @@
+package thesis.engine;
+
+import thesis.engine.column.AttributeNameIndex;
+import thesis.engine.column.ColumnStore;
+import thesis.engine.column.RowRanges;
+import thesis.engine.statistics.AttributeStatistics;
+import thesis.engine.statistics.DataSetStatistics;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Runs the row-local preprocessing stages (class derivation, attribute removal, imputation and normalization)
+ * fused in a single traversal of the data set, after one pass collecting the statistics they depend on.
+ * Every value is read from the source and written to the output columns exactly once.
+ */
+public class PreProcessingPipeline {
+
+    private final ClassDerivation classDerivation;
+    private final String[] removedAttributeNames;
+    private final String[] replaceableAttributeNames;
+    private final boolean normalize;
+    private final double minNormalizeValue, maxNormalizeValue;
+    private final int parallelism;
+
+    private PreProcessingPipeline(Builder builder) {
+        this.classDerivation = builder.classDerivation;
+        this.removedAttributeNames = builder.removedAttributeNames;
+        this.replaceableAttributeNames = builder.replaceableAttributeNames;
+        this.normalize = builder.normalize;
+        this.minNormalizeValue = builder.minNormalizeValue;
+        this.maxNormalizeValue = builder.maxNormalizeValue;
+        this.parallelism = builder.parallelism;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public ColumnStore run(Instances dataSet) {
+        return run(dataSet, DataSetStatistics.of(dataSet));
+    }
+
+    /**
+     * Runs the pipeline with statistics collected beforehand, e.g. over all chunks of a larger data set.
+     */
+    public ColumnStore run(Instances dataSet, DataSetStatistics statistics) {
+        PreProcessingModel model = fit(dataSet, statistics);
+        int numRows = dataSet.numInstances();
+        int numColumns = model.numOutputValues();
+        List<double[]> columns = new ArrayList<>(numColumns);
+        for (int column = 0; column < numColumns; column++) {
+            columns.add(new double[numRows]);
+        }
+        double[] weights = new double[numRows];
+
+        RowRanges.forEach(numRows, parallelism, (fromRow, toRow) -> {
+            double[] values = new double[numColumns];
+            for (int row = fromRow; row < toRow; row++) {
+                Instance instance = dataSet.instance(row);
+                weights[row] = instance.weight();
+                model.transform(instance, values);
+                for (int column = 0; column < numColumns; column++) {
+                    columns.get(column)[row] = values[column];
+                }
+            }
+        });
+        return ColumnStore.of(model.getOutputHeader(), columns, weights);
+    }
+
+    /**
+     * Fits the stages to statistics of the data set, collected beforehand. The returned model transforms single
+     * rows of data sets with the same attributes exactly like {@link #run(Instances, DataSetStatistics)}.
+     */
+    public PreProcessingModel fit(Instances dataSet, DataSetStatistics statistics) {
+        AttributeNameIndex attributeNameIndex = AttributeNameIndex.of(dataSet);
+        Set<Integer> removedAttributeIndices = new HashSet<>();
+        for (String attributeName : removedAttributeNames) {
+            removedAttributeIndices.add(getAttributeIndex(attributeNameIndex, attributeName));
+        }
+        Set<Integer> replaceableAttributeIndices = new HashSet<>();
+        for (String attributeName : replaceableAttributeNames) {
+            replaceableAttributeIndices.add(getAttributeIndex(attributeNameIndex, attributeName));
+        }
+
+        int[] sourceIndices = IntStream.range(0, dataSet.numAttributes())
+                .filter(index -> !removedAttributeIndices.contains(index))
+                .toArray();
+        int numSourceColumns = sourceIndices.length;
+        int numColumns = classDerivation == null ? numSourceColumns : numSourceColumns + 1;
+        double[] replacementValues = new double[numColumns];
+        double[] minOldValues = new double[numColumns];
+        double[] maxOldValues = new double[numColumns];
+        boolean[] isNormalized = new boolean[numColumns];
+
+        for (int column = 0; column < numSourceColumns; column++) {
+            int sourceIndex = sourceIndices[column];
+            AttributeStatistics attributeStatistics = statistics.get(dataSet.attribute(sourceIndex));
+            replacementValues[column] = replaceableAttributeIndices.contains(sourceIndex)
+                    ? attributeStatistics.getMean()
+                    : Double.NaN;
+            isNormalized[column] = normalize && sourceIndex != dataSet.classIndex() && attributeStatistics.hasValues();
+            if (isNormalized[column]) {
+                minOldValues[column] = attributeStatistics.getMin();
+                maxOldValues[column] = attributeStatistics.getMax();
+            }
+        }
+
+        Instances header = createHeader(dataSet, removedAttributeIndices);
+        int[] classSourceIndices = new int[0];
+        if (classDerivation != null) {
+            classSourceIndices = Stream.of(classDerivation.getSourceAttributeNames())
+                    .mapToInt(attributeName -> getAttributeIndex(attributeNameIndex, attributeName))
+                    .toArray();
+            sourceIndices = Arrays.copyOf(sourceIndices, numColumns);
+            sourceIndices[numSourceColumns] = PreProcessingModel.DERIVED_CLASS;
+            replacementValues[numSourceColumns] = Double.NaN;
+            header.insertAttributeAt(classDerivation.createAttribute(), numSourceColumns);
+            header.setClassIndex(numSourceColumns);
+        }
+        return new PreProcessingModel(dataSet, header, sourceIndices, replacementValues, isNormalized,
+                minOldValues, maxOldValues, minNormalizeValue, maxNormalizeValue, classDerivation, classSourceIndices);
+    }
+
+    /**
+     * Returns whether rows processed with previousStatistics have to be rescaled to match rows processed with
+     * statistics, i.e. whether the min or max of a normalized attribute changed.
+     */
+    public boolean isRescalingNeeded(Instances sourceStructure, DataSetStatistics previousStatistics, DataSetStatistics statistics) {
+        return !getRescaledAttributeNames(sourceStructure, previousStatistics, statistics).isEmpty();
+    }
+
+    /**
+     * Rescales the normalized values of already processed rows from previousStatistics to statistics, so that
+     * they match rows processed with statistics. Imputed values keep the mean they were imputed with.
+     */
+    public void rescale(Instances processedDataSet, Instances sourceStructure,
+                        DataSetStatistics previousStatistics, DataSetStatistics statistics) {
+        AttributeNameIndex attributeNameIndex = AttributeNameIndex.of(processedDataSet);
+        for (String attributeName : getRescaledAttributeNames(sourceStructure, previousStatistics, statistics)) {
+            int column = getAttributeIndex(attributeNameIndex, attributeName);
+            Attribute sourceAttribute = sourceStructure.attribute(attributeName);
+            AttributeStatistics previousAttributeStatistics = previousStatistics.get(sourceAttribute);
+            AttributeStatistics attributeStatistics = statistics.get(sourceAttribute);
+            double previousMin = previousAttributeStatistics.getMin();
+            double previousMax = previousAttributeStatistics.getMax();
+            for (int row = 0; row < processedDataSet.numInstances(); row++) {
+                Instance instance = processedDataSet.instance(row);
+                if (instance.isMissing(column)) {
+                    continue;
+                }
+                double value = PreProcessingEngine.getNormalizedAttributeValue(instance.value(column),
+                        minNormalizeValue, maxNormalizeValue, previousMin, previousMax);
+                instance.setValue(column, PreProcessingEngine.getNormalizedAttributeValue(value,
+                        attributeStatistics.getMin(), attributeStatistics.getMax(), minNormalizeValue, maxNormalizeValue));
+            }
+        }
+    }
+
+    private List<String> getRescaledAttributeNames(Instances sourceStructure, DataSetStatistics previousStatistics,
+                                                   DataSetStatistics statistics) {
+        List<String> rescaledAttributeNames = new ArrayList<>();
+        if (!normalize) {
+            return rescaledAttributeNames;
+        }
+        AttributeNameIndex attributeNameIndex = AttributeNameIndex.of(sourceStructure);
+        Set<Integer> removedAttributeIndices = new HashSet<>();
+        for (String attributeName : removedAttributeNames) {
+            removedAttributeIndices.add(getAttributeIndex(attributeNameIndex, attributeName));
+        }
+        for (int index = 0; index < sourceStructure.numAttributes(); index++) {
+            Attribute attribute = sourceStructure.attribute(index);
+            if (removedAttributeIndices.contains(index) || index == sourceStructure.classIndex()) {
+                continue;
+            }
+            AttributeStatistics previousAttributeStatistics = previousStatistics.get(attribute);
+            AttributeStatistics attributeStatistics = statistics.get(attribute);
+            if (previousAttributeStatistics.hasValues() && (previousAttributeStatistics.getMin() != attributeStatistics.getMin()
+                    || previousAttributeStatistics.getMax() != attributeStatistics.getMax())) {
+                rescaledAttributeNames.add(attribute.name());
+            }
+        }
+        return rescaledAttributeNames;
+    }
+
+    private Instances createHeader(Instances dataSet, Set<Integer> removedAttributeIndices) {
+        Instances header = new Instances(dataSet, 0);
+        removedAttributeIndices
+                .stream()
+                .sorted((first, second) -> Integer.compare(second, first))
+                .forEach(index -> {
+                    if (header.classIndex() == index) {
+                        header.setClassIndex(-1);
+                    }
+                    header.deleteAttributeAt(index);
+                });
+        if (classDerivation != null) {
+            header.setClassIndex(-1);
+        }
+        return header;
+    }
+
+    private int getAttributeIndex(AttributeNameIndex attributeNameIndex, String attributeName) {
+        int attributeIndex = attributeNameIndex.indexOf(attributeName);
+        if (attributeIndex == -1) {
+            throw new RuntimeException("An error occurred when trying to get attribute index for attribute " + attributeName);
+        }
+        return attributeIndex;
+    }
+
+    public static class Builder {
+
+        private ClassDerivation classDerivation;
+        private String[] removedAttributeNames = new String[0];
+        private String[] replaceableAttributeNames = new String[0];
+        private boolean normalize;
+        private double minNormalizeValue, maxNormalizeValue;
+        private int parallelism = 1;
+
+        private Builder() {
+        }
+
+        /**
+         * Derives the satisfaction class attribute, see {@link ClassDerivation#satisfaction(String)}.
+         */
+        public Builder deriveClassAttribute(String classAttributeName) {
+            return deriveClassAttribute(ClassDerivation.satisfaction(classAttributeName));
+        }
+
+        public Builder deriveClassAttribute(ClassDerivation classDerivation) {
+            this.classDerivation = classDerivation;
+            return this;
+        }
+
+        public Builder removeAttributes(String... attributeNames) {
+            this.removedAttributeNames = attributeNames.clone();
+            return this;
+        }
+
+        public Builder replaceMissingValues(String... attributeNames) {
+            this.replaceableAttributeNames = attributeNames.clone();
+            return this;
+        }
+
+        public Builder normalize(double minNormalizeValue, double maxNormalizeValue) {
+            this.normalize = true;
+            this.minNormalizeValue = minNormalizeValue;
+            this.maxNormalizeValue = maxNormalizeValue;
+            return this;
+        }
+
+        public Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism);
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        public PreProcessingPipeline build() {
+            return new PreProcessingPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package thesis.engine.column;
+
+import weka.core.Instances;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Case-insensitive lookup of attribute indices by name. If names differ only in case, the first attribute wins.
+ */
+public class AttributeNameIndex {
+
+    private final Map<String, Integer> attributeIndices;
+
+    private AttributeNameIndex(Map<String, Integer> attributeIndices) {
+        this.attributeIndices = attributeIndices;
+    }
+
+    public static AttributeNameIndex of(Instances structure) {
+        Map<String, Integer> attributeIndices = new HashMap<>();
+        for (int i = 0; i < structure.numAttributes(); i++) {
+            attributeIndices.putIfAbsent(normalize(structure.attribute(i).name()), i);
+        }
+        return new AttributeNameIndex(attributeIndices);
+    }
+
+    public int indexOf(String attributeName) {
+        return attributeIndices.getOrDefault(normalize(attributeName), -1);
+    }
+
+    private static String normalize(String attributeName) {
+        return attributeName.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,230 @@
+package thesis.engine.column;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary column-major file format for column stores. The file starts with a header holding the schema,
+ * including nominal and string dictionaries, followed by the row weights and, per column, the missing
+ * value bitmap and the values. Numeric and date columns are stored as doubles, nominal and string columns
+ * as int codes. Sections are 8 byte aligned little endian arrays, so reading maps the file and bulk copies
+ * every section into its array without parsing any value.
+ *
+ * Layout: magic, version, header length, header, padding, weights, then per column bitmap, values, padding.
+ */
+public class ColumnSnapshot {
+
+    public static final String FILE_EXTENSION = ".columns";
+
+    private static final int MAGIC = 0x54434F4C;
+    private static final int VERSION = 1;
+    private static final int PREFIX_LENGTH = 3 * Integer.BYTES;
+
+    private static final byte NUMERIC = 0;
+    private static final byte NOMINAL = 1;
+    private static final byte STRING = 2;
+    private static final byte DATE = 3;
+
+    public static boolean isSnapshotFile(String filename) {
+        return filename.endsWith(FILE_EXTENSION);
+    }
+
+    public static void write(ColumnStore columns, String filename) {
+        int numRows = columns.numRows();
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            byte[] header = writeHeader(columns);
+            ByteBuffer prefix = map(channel, FileChannel.MapMode.READ_WRITE, 0, PREFIX_LENGTH + header.length);
+            prefix.putInt(MAGIC).putInt(VERSION).putInt(header.length).put(header);
+            long position = align(PREFIX_LENGTH + header.length);
+
+            map(channel, FileChannel.MapMode.READ_WRITE, position, (long) numRows * Double.BYTES)
+                    .asDoubleBuffer().put(columns.weights(), 0, numRows);
+            position += align((long) numRows * Double.BYTES);
+
+            for (int column = 0; column < columns.numColumns(); column++) {
+                long[] missing = columns.missingValues(column);
+                ByteBuffer section = map(channel, FileChannel.MapMode.READ_WRITE, position, sectionLength(columns.attribute(column), numRows));
+                section.asLongBuffer().put(missing);
+                ((Buffer) section).position(missing.length * Long.BYTES);
+                double[] values = columns.column(column);
+                if (isCoded(columns.attribute(column))) {
+                    IntBuffer codes = section.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                    for (int row = 0; row < numRows; row++) {
+                        codes.put(columns.isMissing(column, row) ? -1 : (int) values[row]);
+                    }
+                } else {
+                    section.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer().put(values, 0, numRows);
+                }
+                position += align(section.capacity());
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to write column snapshot " + filename, e);
+        }
+    }
+
+    public static ColumnStore read(String filename) {
+        Path path = Paths.get(filename);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer prefix = map(channel, FileChannel.MapMode.READ_ONLY, 0, PREFIX_LENGTH);
+            if (prefix.getInt() != MAGIC) {
+                throw new IllegalArgumentException("File " + filename + " is not a column snapshot");
+            }
+            int version = prefix.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Column snapshot version " + version + " of file " + filename + " is not supported");
+            }
+            byte[] headerBytes = new byte[prefix.getInt()];
+            map(channel, FileChannel.MapMode.READ_ONLY, PREFIX_LENGTH, headerBytes.length).get(headerBytes);
+            DataInputStream headerInput = new DataInputStream(new ByteArrayInputStream(headerBytes));
+            Instances header = readHeader(headerInput);
+            int numRows = headerInput.readInt();
+            long position = align(PREFIX_LENGTH + headerBytes.length);
+
+            double[] weights = new double[numRows];
+            map(channel, FileChannel.MapMode.READ_ONLY, position, (long) numRows * Double.BYTES).asDoubleBuffer().get(weights);
+            position += align((long) numRows * Double.BYTES);
+
+            List<double[]> values = new ArrayList<>(header.numAttributes());
+            List<long[]> missingValues = new ArrayList<>(header.numAttributes());
+            for (int column = 0; column < header.numAttributes(); column++) {
+                ByteBuffer section = map(channel, FileChannel.MapMode.READ_ONLY, position, sectionLength(header.attribute(column), numRows));
+                LongBuffer bitmap = section.asLongBuffer();
+                long[] missing = new long[ColumnStore.bitmapLength(numRows)];
+                bitmap.get(missing);
+                ((Buffer) section).position(missing.length * Long.BYTES);
+                double[] columnValues = new double[numRows];
+                if (isCoded(header.attribute(column))) {
+                    IntBuffer codes = section.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+                    for (int row = 0; row < numRows; row++) {
+                        int code = codes.get(row);
+                        columnValues[row] = code < 0 ? Double.NaN : code;
+                    }
+                } else {
+                    DoubleBuffer doubles = section.slice().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+                    doubles.get(columnValues);
+                }
+                values.add(columnValues);
+                missingValues.add(missing);
+                position += align(section.capacity());
+            }
+            return ColumnStore.of(header, values, missingValues, weights);
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to read column snapshot " + filename, e);
+        }
+    }
+
+    private static byte[] writeHeader(ColumnStore columns) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        output.writeUTF(columns.getHeader().relationName());
+        output.writeInt(columns.numColumns());
+        output.writeInt(columns.classIndex());
+        for (int column = 0; column < columns.numColumns(); column++) {
+            Attribute attribute = columns.attribute(column);
+            output.writeUTF(attribute.name());
+            switch (attribute.type()) {
+                case Attribute.NUMERIC:
+                    output.writeByte(NUMERIC);
+                    break;
+                case Attribute.DATE:
+                    output.writeByte(DATE);
+                    output.writeUTF(attribute.getDateFormat());
+                    break;
+                case Attribute.NOMINAL:
+                case Attribute.STRING:
+                    output.writeByte(attribute.isNominal() ? NOMINAL : STRING);
+                    output.writeInt(attribute.numValues());
+                    for (int value = 0; value < attribute.numValues(); value++) {
+                        output.writeUTF(attribute.value(value));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Attribute " + attribute.name() + " of type "
+                            + Attribute.typeToString(attribute) + " cannot be stored in a column snapshot");
+            }
+        }
+        output.writeInt(columns.numRows());
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private static Instances readHeader(DataInputStream input) throws IOException {
+        String relationName = input.readUTF();
+        int numColumns = input.readInt();
+        int classIndex = input.readInt();
+        ArrayList<Attribute> attributes = new ArrayList<>(numColumns);
+        for (int column = 0; column < numColumns; column++) {
+            String name = input.readUTF();
+            byte type = input.readByte();
+            switch (type) {
+                case NUMERIC:
+                    attributes.add(new Attribute(name));
+                    break;
+                case DATE:
+                    attributes.add(new Attribute(name, input.readUTF()));
+                    break;
+                case NOMINAL:
+                case STRING:
+                    List<String> dictionary = new ArrayList<>();
+                    int numValues = input.readInt();
+                    for (int value = 0; value < numValues; value++) {
+                        dictionary.add(input.readUTF());
+                    }
+                    attributes.add(type == NOMINAL ? new Attribute(name, dictionary) : createStringAttribute(name, dictionary));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown column type " + type + " of attribute " + name);
+            }
+        }
+        Instances header = new Instances(relationName, attributes, 0);
+        header.setClassIndex(classIndex);
+        return header;
+    }
+
+    private static Attribute createStringAttribute(String name, List<String> dictionary) {
+        Attribute attribute = new Attribute(name, (List<String>) null);
+        for (String value : dictionary) {
+            attribute.addStringValue(value);
+        }
+        return attribute;
+    }
+
+    private static boolean isCoded(Attribute attribute) {
+        return attribute.isNominal() || attribute.isString();
+    }
+
+    private static long sectionLength(Attribute attribute, int numRows) {
+        return (long) ColumnStore.bitmapLength(numRows) * Long.BYTES
+                + (long) numRows * (isCoded(attribute) ? Integer.BYTES : Double.BYTES);
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long position, long length) throws IOException {
+        MappedByteBuffer buffer = channel.map(mode, position, length);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        return buffer;
+    }
+
+    private static long align(long position) {
+        return (position + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+    }
+}
@@ -0,0 +1,20 @@
+package thesis.engine.column;
+
+import weka.core.Instances;
+
+/**
+ * Read access to the columns of a data set. Missing values are NaN in the returned arrays, which must not be
+ * modified unless the caller owns the source.
+ */
+public interface ColumnSource {
+
+    Instances getHeader();
+
+    int numRows();
+
+    int numColumns();
+
+    int classIndex();
+
+    double[] column(int column);
+}
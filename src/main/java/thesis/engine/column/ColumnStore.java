@@ -0,0 +1,355 @@
+package thesis.engine.column;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Column-major copy of a data set: one primitive array per attribute plus a bitmap of missing values.
+ * Missing slots additionally hold NaN, so columns can be passed to numeric routines as they are.
+ * Columns that are mostly missing or 0 can be compressed into {@link SparseColumn}s, which replace
+ * both the array and the bitmap.
+ */
+public class ColumnStore implements ColumnSource {
+
+    /**
+     * Fraction of missing or 0 values from which the engines store a column sparsely by default.
+     */
+    public static final double DEFAULT_SPARSE_THRESHOLD = 0.75;
+
+    private final Instances header;
+    private final List<double[]> columns;
+    private final List<long[]> missingValues;
+    private final List<SparseColumn> sparseColumns;
+    private double[] weights;
+    private int numRows;
+    private AttributeNameIndex attributeNameIndex;
+
+    private ColumnStore(Instances header, List<double[]> columns, List<long[]> missingValues, double[] weights, int numRows) {
+        this.header = header;
+        this.columns = columns;
+        this.missingValues = missingValues;
+        this.sparseColumns = new ArrayList<>(Collections.nCopies(columns.size(), (SparseColumn) null));
+        this.weights = weights;
+        this.numRows = numRows;
+    }
+
+    public static ColumnStore of(Instances dataSet) {
+        int numRows = dataSet.numInstances();
+        int numColumns = dataSet.numAttributes();
+        List<double[]> columns = new ArrayList<>(numColumns);
+        List<long[]> missingValues = new ArrayList<>(numColumns);
+        for (int column = 0; column < numColumns; column++) {
+            columns.add(new double[numRows]);
+            missingValues.add(new long[bitmapLength(numRows)]);
+        }
+        double[] weights = new double[numRows];
+
+        for (int row = 0; row < numRows; row++) {
+            Instance instance = dataSet.instance(row);
+            weights[row] = instance.weight();
+            for (int column = 0; column < numColumns; column++) {
+                double value = instance.value(column);
+                columns.get(column)[row] = value;
+                if (Utils.isMissingValue(value)) {
+                    setBit(missingValues.get(column), row);
+                }
+            }
+        }
+        return new ColumnStore(new Instances(dataSet, 0), columns, missingValues, weights, numRows);
+    }
+
+    /**
+     * Wraps already computed columns without copying them. Missing values have to be NaN.
+     */
+    public static ColumnStore of(Instances header, List<double[]> columns, double[] weights) {
+        if (header.numAttributes() != columns.size()) {
+            throw new IllegalArgumentException("Header has " + header.numAttributes() + " attributes but "
+                    + columns.size() + " columns were passed");
+        }
+        int numRows = weights.length;
+        List<long[]> missingValues = new ArrayList<>(columns.size());
+        for (double[] values : columns) {
+            long[] missing = new long[bitmapLength(numRows)];
+            for (int row = 0; row < numRows; row++) {
+                if (Utils.isMissingValue(values[row])) {
+                    setBit(missing, row);
+                }
+            }
+            missingValues.add(missing);
+        }
+        return new ColumnStore(new Instances(header, 0), new ArrayList<>(columns), missingValues, weights, numRows);
+    }
+
+    static ColumnStore of(Instances header, List<double[]> columns, List<long[]> missingValues, double[] weights) {
+        return new ColumnStore(header, new ArrayList<>(columns), new ArrayList<>(missingValues), weights, weights.length);
+    }
+
+    public Instances toInstances() {
+        Instances dataSet = new Instances(header, numRows);
+        int numColumns = numColumns();
+        double[][] denseColumns = new double[numColumns][];
+        for (int column = 0; column < numColumns; column++) {
+            denseColumns[column] = column(column);
+        }
+        for (int row = 0; row < numRows; row++) {
+            double[] values = new double[numColumns];
+            for (int column = 0; column < numColumns; column++) {
+                boolean isMissing = isSparse(column) ? Double.isNaN(denseColumns[column][row]) : isMissing(column, row);
+                values[column] = isMissing ? Utils.missingValue() : denseColumns[column][row];
+            }
+            dataSet.add(new DenseInstance(weights[row], values));
+        }
+        return dataSet;
+    }
+
+    @Override
+    public Instances getHeader() {
+        return header;
+    }
+
+    @Override
+    public int numRows() {
+        return numRows;
+    }
+
+    @Override
+    public int numColumns() {
+        return columns.size();
+    }
+
+    @Override
+    public int classIndex() {
+        return header.classIndex();
+    }
+
+    public void setClassIndex(int classIndex) {
+        header.setClassIndex(classIndex);
+    }
+
+    public Attribute attribute(int column) {
+        return header.attribute(column);
+    }
+
+    /**
+     * Returns the index of the attribute with the passed name ignoring case, or -1 if there is none.
+     */
+    public int indexOf(String attributeName) {
+        if (attributeNameIndex == null) {
+            attributeNameIndex = AttributeNameIndex.of(header);
+        }
+        return attributeNameIndex.indexOf(attributeName);
+    }
+
+    /**
+     * Returns the live backing array of a dense column; writes through it must keep the missing bitmap in sync.
+     * Sparse columns are returned as a dense copy, writes through it are lost.
+     */
+    @Override
+    public double[] column(int column) {
+        SparseColumn sparseColumn = sparseColumns.get(column);
+        return sparseColumn == null ? columns.get(column) : sparseColumn.toDense();
+    }
+
+    public boolean isSparse(int column) {
+        return sparseColumns.get(column) != null;
+    }
+
+    /**
+     * Returns the live sparse form of the column, or null if the column is dense.
+     */
+    public SparseColumn sparseColumn(int column) {
+        return sparseColumns.get(column);
+    }
+
+    public int numSparseColumns() {
+        int numSparseColumns = 0;
+        for (SparseColumn sparseColumn : sparseColumns) {
+            if (sparseColumn != null) {
+                numSparseColumns++;
+            }
+        }
+        return numSparseColumns;
+    }
+
+    /**
+     * Compresses every column but the class column in which at least minDefaultFraction of the values are
+     * missing or 0, and returns the number of compressed columns.
+     */
+    public int compressSparseColumns(double minDefaultFraction) {
+        int numCompressedColumns = 0;
+        for (int column = 0; column < numColumns(); column++) {
+            if (isSparse(column) || column == classIndex()) {
+                continue;
+            }
+            SparseColumn sparseColumn = SparseColumn.compress(columns.get(column), minDefaultFraction);
+            if (sparseColumn != null) {
+                sparseColumns.set(column, sparseColumn);
+                columns.set(column, null);
+                missingValues.set(column, null);
+                numCompressedColumns++;
+            }
+        }
+        return numCompressedColumns;
+    }
+
+    private void decompress(int column) {
+        double[] values = sparseColumns.get(column).toDense();
+        long[] missing = new long[bitmapLength(numRows)];
+        for (int row = 0; row < numRows; row++) {
+            if (Utils.isMissingValue(values[row])) {
+                setBit(missing, row);
+            }
+        }
+        columns.set(column, values);
+        missingValues.set(column, missing);
+        sparseColumns.set(column, null);
+    }
+
+    public double value(int column, int row) {
+        SparseColumn sparseColumn = sparseColumns.get(column);
+        return sparseColumn == null ? columns.get(column)[row] : sparseColumn.get(row);
+    }
+
+    public boolean isMissing(int column, int row) {
+        SparseColumn sparseColumn = sparseColumns.get(column);
+        return sparseColumn == null ? isBitSet(missingValues.get(column), row) : Double.isNaN(sparseColumn.get(row));
+    }
+
+    public int numMissing(int column) {
+        SparseColumn sparseColumn = sparseColumns.get(column);
+        if (sparseColumn != null) {
+            int numMissing = Double.isNaN(sparseColumn.getDefaultValue()) ? sparseColumn.numDefaults() : 0;
+            for (double value : sparseColumn.values()) {
+                if (Double.isNaN(value)) {
+                    numMissing++;
+                }
+            }
+            return numMissing;
+        }
+        int numMissing = 0;
+        for (long word : missingValues.get(column)) {
+            numMissing += Long.bitCount(word);
+        }
+        return numMissing;
+    }
+
+    long[] missingValues(int column) {
+        if (!isSparse(column)) {
+            return missingValues.get(column);
+        }
+        double[] values = column(column);
+        long[] missing = new long[bitmapLength(numRows)];
+        for (int row = 0; row < numRows; row++) {
+            if (Utils.isMissingValue(values[row])) {
+                setBit(missing, row);
+            }
+        }
+        return missing;
+    }
+
+    double[] weights() {
+        return weights;
+    }
+
+    /**
+     * Sets a single value. A sparse column is decompressed first.
+     */
+    public void setValue(int column, int row, double value) {
+        if (isSparse(column)) {
+            decompress(column);
+        }
+        columns.get(column)[row] = value;
+        if (Utils.isMissingValue(value)) {
+            setBit(missingValues.get(column), row);
+        } else {
+            clearBit(missingValues.get(column), row);
+        }
+    }
+
+    public void addColumn(Attribute attribute, double[] values) {
+        if (values.length != numRows) {
+            throw new IllegalArgumentException("Column " + attribute.name() + " has " + values.length
+                    + " values but the data set has " + numRows + " rows");
+        }
+        long[] missing = new long[bitmapLength(numRows)];
+        for (int row = 0; row < numRows; row++) {
+            if (Utils.isMissingValue(values[row])) {
+                setBit(missing, row);
+            }
+        }
+        header.insertAttributeAt(attribute, numColumns());
+        columns.add(values);
+        missingValues.add(missing);
+        sparseColumns.add(null);
+        attributeNameIndex = null;
+    }
+
+    public void removeColumns(int[] columnIndices) {
+        int[] sortedIndices = Arrays.stream(columnIndices).distinct().sorted().toArray();
+        for (int i = sortedIndices.length - 1; i >= 0; i--) {
+            int column = sortedIndices[i];
+            if (header.classIndex() == column) {
+                header.setClassIndex(-1);
+            }
+            header.deleteAttributeAt(column);
+            columns.remove(column);
+            missingValues.remove(column);
+            sparseColumns.remove(column);
+        }
+        attributeNameIndex = null;
+    }
+
+    /**
+     * Keeps only the passed rows, in the passed order. Rows may be repeated.
+     */
+    public void selectRows(int[] rows) {
+        for (int column = 0; column < numColumns(); column++) {
+            if (isSparse(column)) {
+                sparseColumns.set(column, sparseColumns.get(column).selectRows(rows));
+                continue;
+            }
+            double[] values = columns.get(column);
+            long[] missing = missingValues.get(column);
+            double[] selectedValues = new double[rows.length];
+            long[] selectedMissing = new long[bitmapLength(rows.length)];
+            for (int i = 0; i < rows.length; i++) {
+                selectedValues[i] = values[rows[i]];
+                if (isBitSet(missing, rows[i])) {
+                    setBit(selectedMissing, i);
+                }
+            }
+            columns.set(column, selectedValues);
+            missingValues.set(column, selectedMissing);
+        }
+        double[] selectedWeights = new double[rows.length];
+        for (int i = 0; i < rows.length; i++) {
+            selectedWeights[i] = weights[rows[i]];
+        }
+        this.weights = selectedWeights;
+        this.numRows = rows.length;
+    }
+
+    static int bitmapLength(int numRows) {
+        return (numRows + Long.SIZE - 1) / Long.SIZE;
+    }
+
+    private static boolean isBitSet(long[] bitmap, int row) {
+        return (bitmap[row >>> 6] & (1L << row)) != 0;
+    }
+
+    private static void setBit(long[] bitmap, int row) {
+        bitmap[row >>> 6] |= 1L << row;
+    }
+
+    private static void clearBit(long[] bitmap, int row) {
+        bitmap[row >>> 6] &= ~(1L << row);
+    }
+}
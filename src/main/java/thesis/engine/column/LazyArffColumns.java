@@ -0,0 +1,337 @@
+package thesis.engine.column;
+
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column source over a dense ARFF file that parses a column only when it is first requested. Opening maps
+ * the file and indexes the offsets of all data rows. Parsed columns are cached in least recently used order
+ * as long as they fit into the memory budget; the most recently requested column is always kept.
+ * Instance weights are not supported, every row has weight 1.
+ */
+public class LazyArffColumns implements ColumnSource {
+
+    private final String filename;
+    private final MappedByteBuffer buffer;
+    private final Instances header;
+    private final int[] rowOffsets;
+    private final long memoryBudget;
+    private final LinkedHashMap<Integer, double[]> parsedColumns = new LinkedHashMap<>(16, 0.75f, true);
+    private byte[] fieldBytes = new byte[64];
+    private long usedMemory;
+    private long numParsedColumns, numEvictedColumns;
+
+    private LazyArffColumns(String filename, MappedByteBuffer buffer, Instances header, int[] rowOffsets, long memoryBudget) {
+        this.filename = filename;
+        this.buffer = buffer;
+        this.header = header;
+        this.rowOffsets = rowOffsets;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Opens an ARFF file of at most 2 GB. The memory budget limits the bytes of cached columns.
+     */
+    public static LazyArffColumns open(String filename, long memoryBudget) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("File " + filename + " is too large to be mapped at once");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to map file " + filename, e);
+        }
+
+        int dataOffset = findDataOffset(buffer, filename);
+        Instances header = readHeader(buffer, dataOffset, filename);
+        return new LazyArffColumns(filename, buffer, header, indexRows(buffer, dataOffset, filename), memoryBudget);
+    }
+
+    private static int findDataOffset(MappedByteBuffer buffer, String filename) {
+        int lineStart = 0;
+        while (lineStart < buffer.limit()) {
+            int lineEnd = findLineEnd(buffer, lineStart);
+            int position = skipWhitespace(buffer, lineStart, lineEnd);
+            if (startsWithIgnoreCase(buffer, position, lineEnd, "@data")) {
+                return lineEnd;
+            }
+            lineStart = lineEnd + 1;
+        }
+        throw new IllegalArgumentException("File " + filename + " has no @data section");
+    }
+
+    private static Instances readHeader(MappedByteBuffer buffer, int dataOffset, String filename) {
+        byte[] headerBytes = new byte[dataOffset];
+        for (int i = 0; i < dataOffset; i++) {
+            headerBytes[i] = buffer.get(i);
+        }
+        try {
+            return new Instances(new StringReader(new String(headerBytes, StandardCharsets.UTF_8)));
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to read the header of file " + filename, e);
+        }
+    }
+
+    private static int[] indexRows(MappedByteBuffer buffer, int dataOffset, String filename) {
+        int[] rowOffsets = new int[1024];
+        int numRows = 0;
+        int lineStart = dataOffset + 1;
+        while (lineStart < buffer.limit()) {
+            int lineEnd = findLineEnd(buffer, lineStart);
+            int position = skipWhitespace(buffer, lineStart, lineEnd);
+            if (position < lineEnd && buffer.get(position) != '%') {
+                if (buffer.get(position) == '{') {
+                    throw new IllegalArgumentException("Sparse rows of file " + filename + " are not supported");
+                }
+                if (numRows == rowOffsets.length) {
+                    rowOffsets = Arrays.copyOf(rowOffsets, numRows * 2);
+                }
+                rowOffsets[numRows++] = position;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return Arrays.copyOf(rowOffsets, numRows);
+    }
+
+    @Override
+    public Instances getHeader() {
+        return header;
+    }
+
+    @Override
+    public int numRows() {
+        return rowOffsets.length;
+    }
+
+    @Override
+    public int numColumns() {
+        return header.numAttributes();
+    }
+
+    @Override
+    public int classIndex() {
+        return header.classIndex();
+    }
+
+    public void setClassIndex(int classIndex) {
+        header.setClassIndex(classIndex);
+    }
+
+    @Override
+    public synchronized double[] column(int column) {
+        double[] values = parsedColumns.get(column);
+        if (values == null) {
+            values = parseColumn(column);
+            numParsedColumns++;
+            parsedColumns.put(column, values);
+            usedMemory += sizeOf(values);
+            evictColumns();
+        }
+        return values;
+    }
+
+    private void evictColumns() {
+        Iterator<Map.Entry<Integer, double[]>> entries = parsedColumns.entrySet().iterator();
+        while (usedMemory > memoryBudget && parsedColumns.size() > 1) {
+            usedMemory -= sizeOf(entries.next().getValue());
+            entries.remove();
+            numEvictedColumns++;
+        }
+    }
+
+    private static long sizeOf(double[] values) {
+        return (long) values.length * Double.BYTES;
+    }
+
+    public synchronized int numCachedColumns() {
+        return parsedColumns.size();
+    }
+
+    /**
+     * Counts parsed columns including columns parsed again after they were evicted.
+     */
+    public synchronized long getNumParsedColumns() {
+        return numParsedColumns;
+    }
+
+    public synchronized long getNumEvictedColumns() {
+        return numEvictedColumns;
+    }
+
+    /**
+     * Parses all columns into a column store that no longer depends on the file.
+     */
+    public ColumnStore toColumnStore() {
+        List<double[]> columns = new ArrayList<>(numColumns());
+        for (int column = 0; column < numColumns(); column++) {
+            columns.add(column(column).clone());
+        }
+        double[] weights = new double[numRows()];
+        Arrays.fill(weights, 1.0);
+        return ColumnStore.of(header, columns, weights);
+    }
+
+    private double[] parseColumn(int column) {
+        Attribute attribute = header.attribute(column);
+        double[] values = new double[rowOffsets.length];
+        for (int row = 0; row < rowOffsets.length; row++) {
+            values[row] = parseField(attribute, row, rowOffsets[row]);
+        }
+        return values;
+    }
+
+    private double parseField(Attribute attribute, int row, int rowOffset) {
+        int lineEnd = findLineEnd(buffer, rowOffset);
+        int position = rowOffset;
+        for (int field = 0; ; field++) {
+            position = skipWhitespace(buffer, position, lineEnd);
+            int fieldLength;
+            boolean isQuoted = position < lineEnd && (buffer.get(position) == '\'' || buffer.get(position) == '"');
+            if (isQuoted) {
+                fieldLength = field == attribute.index() ? readQuotedField(position, lineEnd) : 0;
+                position = skipQuotedField(position, lineEnd);
+            } else {
+                int fieldEnd = position;
+                while (fieldEnd < lineEnd && buffer.get(fieldEnd) != ',') {
+                    fieldEnd++;
+                }
+                fieldLength = field == attribute.index() ? readPlainField(position, fieldEnd) : 0;
+                position = fieldEnd;
+            }
+            if (field == attribute.index()) {
+                return toValue(attribute, isQuoted, fieldLength, row);
+            }
+            if (position >= lineEnd) {
+                throw new IllegalArgumentException("Row " + row + " of file " + filename + " has only "
+                        + (field + 1) + " values");
+            }
+            position++;
+        }
+    }
+
+    private int readPlainField(int start, int end) {
+        while (end > start && Character.isWhitespace(buffer.get(end - 1))) {
+            end--;
+        }
+        ensureFieldCapacity(end - start);
+        for (int i = start; i < end; i++) {
+            fieldBytes[i - start] = buffer.get(i);
+        }
+        return end - start;
+    }
+
+    private int readQuotedField(int start, int lineEnd) {
+        byte quote = buffer.get(start);
+        int length = 0;
+        for (int i = start + 1; i < lineEnd && buffer.get(i) != quote; i++) {
+            byte character = buffer.get(i);
+            if (character == '\\' && i + 1 < lineEnd) {
+                character = unescape(buffer.get(++i));
+            }
+            ensureFieldCapacity(length + 1);
+            fieldBytes[length++] = character;
+        }
+        return length;
+    }
+
+    private int skipQuotedField(int start, int lineEnd) {
+        byte quote = buffer.get(start);
+        int position = start + 1;
+        while (position < lineEnd && buffer.get(position) != quote) {
+            position += buffer.get(position) == '\\' ? 2 : 1;
+        }
+        while (position < lineEnd && buffer.get(position) != ',') {
+            position++;
+        }
+        return position;
+    }
+
+    private static byte unescape(byte character) {
+        switch (character) {
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 't':
+                return '\t';
+            default:
+                return character;
+        }
+    }
+
+    private void ensureFieldCapacity(int length) {
+        if (length > fieldBytes.length) {
+            fieldBytes = Arrays.copyOf(fieldBytes, Math.max(length, fieldBytes.length * 2));
+        }
+    }
+
+    private double toValue(Attribute attribute, boolean isQuoted, int fieldLength, int row) {
+        if (!isQuoted && fieldLength == 1 && fieldBytes[0] == '?') {
+            return Double.NaN;
+        }
+        String value = new String(fieldBytes, 0, fieldLength, StandardCharsets.UTF_8);
+        try {
+            switch (attribute.type()) {
+                case Attribute.NUMERIC:
+                    return Double.parseDouble(value);
+                case Attribute.NOMINAL:
+                    int index = attribute.indexOfValue(value);
+                    if (index < 0) {
+                        throw new IllegalArgumentException("Value is not declared");
+                    }
+                    return index;
+                case Attribute.STRING:
+                    return attribute.addStringValue(value);
+                case Attribute.DATE:
+                    return attribute.parseDate(value);
+                default:
+                    throw new IllegalArgumentException("Attributes of type " + Attribute.typeToString(attribute) + " are not supported");
+            }
+        } catch (IllegalArgumentException | ParseException e) {
+            throw new RuntimeException("An error occurred when trying to parse value " + value + " of attribute "
+                    + attribute.name() + " in row " + row + " of file " + filename, e);
+        }
+    }
+
+    private static int findLineEnd(MappedByteBuffer buffer, int position) {
+        while (position < buffer.limit() && buffer.get(position) != '\n' && buffer.get(position) != '\r') {
+            position++;
+        }
+        return position;
+    }
+
+    private static int skipWhitespace(MappedByteBuffer buffer, int position, int end) {
+        while (position < end && Character.isWhitespace(buffer.get(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private static boolean startsWithIgnoreCase(MappedByteBuffer buffer, int position, int end, String prefix) {
+        if (end - position < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(buffer.get(position + i)) != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package thesis.engine.column;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Splits rows into ranges processed on a fork-join pool. Range boundaries are multiples of 64 rows, so two
+ * ranges never share a word of a column's missing-value bitmap and may update it concurrently.
+ */
+public class RowRanges {
+
+    private static final int ALIGNMENT = Long.SIZE;
+    private static final int MIN_RANGE_SIZE = 16 * 1024;
+
+    public interface RowRangeAction {
+        void process(int fromRow, int toRow);
+    }
+
+    public static void forEach(int numRows, int parallelism, RowRangeAction action) {
+        forEach(numRows, parallelism, MIN_RANGE_SIZE, action);
+    }
+
+    public static void forEach(int numRows, int parallelism, int minRangeSize, RowRangeAction action) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism);
+        }
+        if (parallelism == 1 || numRows <= minRangeSize) {
+            action.process(0, numRows);
+            return;
+        }
+
+        int rangeSize = Math.max(align(minRangeSize), align(numRows / (parallelism * 4)));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(new RowRangeTask(action, 0, numRows, rangeSize));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static int align(int row) {
+        return row / ALIGNMENT * ALIGNMENT;
+    }
+
+    private static class RowRangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RowRangeAction action;
+        private final int fromRow, toRow, rangeSize;
+
+        RowRangeTask(RowRangeAction action, int fromRow, int toRow, int rangeSize) {
+            this.action = action;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.rangeSize = rangeSize;
+        }
+
+        @Override
+        protected void compute() {
+            int middleRow = fromRow + align((toRow - fromRow) / 2);
+            if (toRow - fromRow <= rangeSize || middleRow == fromRow) {
+                action.process(fromRow, toRow);
+                return;
+            }
+            invokeAll(new RowRangeTask(action, fromRow, middleRow, rangeSize),
+                    new RowRangeTask(action, middleRow, toRow, rangeSize));
+        }
+    }
+}
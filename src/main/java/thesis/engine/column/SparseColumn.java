@@ -0,0 +1,162 @@
+package thesis.engine.column;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Column in which most rows hold the same default value, either missing (NaN) or 0. Only the rows holding
+ * another value are stored, as ascending row indices with their values, so routines that handle the default
+ * value once can iterate the entries only.
+ */
+public class SparseColumn {
+
+    private final int numRows;
+    private double defaultValue;
+    private final int[] rows;
+    private final double[] values;
+
+    SparseColumn(int numRows, double defaultValue, int[] rows, double[] values) {
+        this.numRows = numRows;
+        this.defaultValue = defaultValue;
+        this.rows = rows;
+        this.values = values;
+    }
+
+    /**
+     * Compresses the values if at least minDefaultFraction of them are missing or 0, otherwise returns null.
+     */
+    public static SparseColumn compress(double[] values, double minDefaultFraction) {
+        int numMissing = 0, numZeros = 0;
+        for (double value : values) {
+            if (Double.isNaN(value)) {
+                numMissing++;
+            } else if (isZero(value)) {
+                numZeros++;
+            }
+        }
+        if (!isSparse(numMissing, numZeros, values.length, minDefaultFraction)) {
+            return null;
+        }
+        return of(values, numMissing >= numZeros ? Double.NaN : 0);
+    }
+
+    /**
+     * Returns whether {@link #compress} compresses a column with the passed numbers of missing values and zeros.
+     */
+    public static boolean isSparse(long numMissing, long numZeros, long numValues, double minDefaultFraction) {
+        return numValues > 0 && Math.max(numMissing, numZeros) >= minDefaultFraction * numValues;
+    }
+
+    /**
+     * Returns whether the value is 0 as counted by {@link #compress}, which keeps -0.0 as an entry.
+     */
+    public static boolean isZero(double value) {
+        return isDefault(value, 0);
+    }
+
+    public static SparseColumn of(double[] values, double defaultValue) {
+        int numEntries = 0;
+        for (double value : values) {
+            if (!isDefault(value, defaultValue)) {
+                numEntries++;
+            }
+        }
+        int[] rows = new int[numEntries];
+        double[] entryValues = new double[numEntries];
+        int entry = 0;
+        for (int row = 0; row < values.length; row++) {
+            if (!isDefault(values[row], defaultValue)) {
+                rows[entry] = row;
+                entryValues[entry++] = values[row];
+            }
+        }
+        return new SparseColumn(values.length, defaultValue, rows, entryValues);
+    }
+
+    // Compares bits, so that -0.0 is kept as an entry of a column defaulting to 0
+    private static boolean isDefault(double value, double defaultValue) {
+        return Double.isNaN(defaultValue) ? Double.isNaN(value) : Double.doubleToLongBits(value) == Double.doubleToLongBits(defaultValue);
+    }
+
+    public int numRows() {
+        return numRows;
+    }
+
+    public double getDefaultValue() {
+        return defaultValue;
+    }
+
+    public int numEntries() {
+        return rows.length;
+    }
+
+    public int numDefaults() {
+        return numRows - rows.length;
+    }
+
+    /**
+     * Returns the live ascending row indices of the entries.
+     */
+    public int[] rows() {
+        return rows;
+    }
+
+    /**
+     * Returns the live values of the entries, in the order of {@link #rows()}.
+     */
+    public double[] values() {
+        return values;
+    }
+
+    public double get(int row) {
+        int entry = Arrays.binarySearch(rows, row);
+        return entry >= 0 ? values[entry] : defaultValue;
+    }
+
+    /**
+     * Applies the function to the default value once and to every entry, e.g. to impute or normalize the column.
+     * Entries that map to the new default value are kept as entries.
+     */
+    public void transform(DoubleUnaryOperator function) {
+        defaultValue = function.applyAsDouble(defaultValue);
+        for (int entry = 0; entry < values.length; entry++) {
+            values[entry] = function.applyAsDouble(values[entry]);
+        }
+    }
+
+    public double[] toDense() {
+        double[] dense = new double[numRows];
+        if (Double.doubleToLongBits(defaultValue) != 0) {
+            Arrays.fill(dense, defaultValue);
+        }
+        for (int entry = 0; entry < rows.length; entry++) {
+            dense[rows[entry]] = values[entry];
+        }
+        return dense;
+    }
+
+    /**
+     * Returns the column of the passed rows, in the passed order. Rows may be repeated.
+     */
+    public SparseColumn selectRows(int[] selectedRows) {
+        int[] entries = new int[selectedRows.length];
+        int numEntries = 0;
+        for (int i = 0; i < selectedRows.length; i++) {
+            int entry = Arrays.binarySearch(rows, selectedRows[i]);
+            entries[i] = entry;
+            if (entry >= 0) {
+                numEntries++;
+            }
+        }
+        int[] newRows = new int[numEntries];
+        double[] newValues = new double[numEntries];
+        int newEntry = 0;
+        for (int i = 0; i < selectedRows.length; i++) {
+            if (entries[i] >= 0) {
+                newRows[newEntry] = i;
+                newValues[newEntry++] = values[entries[i]];
+            }
+        }
+        return new SparseColumn(selectedRows.length, defaultValue, newRows, newValues);
+    }
+}
@@ -0,0 +1,18 @@
+package thesis.engine.metrics;
+
+public interface PreProcessingMetrics {
+
+    PreProcessingMetrics DISABLED = new PreProcessingMetrics() {
+        @Override
+        public void stageStarted(String stageName, int numRowsIn) {
+        }
+
+        @Override
+        public void stageFinished(String stageName, int numRowsOut) {
+        }
+    };
+
+    void stageStarted(String stageName, int numRowsIn);
+
+    void stageFinished(String stageName, int numRowsOut);
+}
@@ -0,0 +1,104 @@
+package thesis.engine.metrics;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Records the metrics of every stage. The peak usages of the heap memory pools are reset whenever a stage
+ * starts, which is JVM-global: other users of the memory pool MXBeans, e.g. monitoring agents, see the peaks
+ * since the start of the current stage rather than since their own last reset.
+ */
+public class RecordingPreProcessingMetrics implements PreProcessingMetrics {
+
+    private final List<StageMetrics> stageMetrics = new ArrayList<>();
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+    private final List<MemoryPoolMXBean> heapMemoryPools = ManagementFactory.getMemoryPoolMXBeans()
+            .stream()
+            .filter(memoryPool -> memoryPool.getType() == MemoryType.HEAP)
+            .collect(Collectors.toList());
+
+    private String currentStageName;
+    private int currentNumRowsIn;
+    private long currentStartNanos;
+    private long currentStartAllocatedBytes;
+
+    @Override
+    public void stageStarted(String stageName, int numRowsIn) {
+        heapMemoryPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        this.currentStageName = stageName;
+        this.currentNumRowsIn = numRowsIn;
+        this.currentStartAllocatedBytes = getAllocatedBytes();
+        this.currentStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public void stageFinished(String stageName, int numRowsOut) {
+        long wallTimeNanos = System.nanoTime() - currentStartNanos;
+        if (!stageName.equals(currentStageName)) {
+            throw new IllegalStateException("Stage " + stageName + " finished but stage " + currentStageName + " was started");
+        }
+
+        long allocatedBytes = currentStartAllocatedBytes < 0 ? -1 : getAllocatedBytes() - currentStartAllocatedBytes;
+        long peakHeapUpperBoundBytes = heapMemoryPools.stream().mapToLong(memoryPool -> memoryPool.getPeakUsage().getUsed()).sum();
+        stageMetrics.add(new StageMetrics(stageName, wallTimeNanos, currentNumRowsIn, numRowsOut, allocatedBytes, peakHeapUpperBoundBytes));
+        this.currentStageName = null;
+    }
+
+    public List<StageMetrics> getStageMetrics() {
+        return Collections.unmodifiableList(stageMetrics);
+    }
+
+    public String toJson() {
+        return stageMetrics
+                .stream()
+                .map(stage -> "    {\"stage\": \"" + escapeJson(stage.getStageName()) + "\""
+                        + ", \"wallTimeMillis\": " + stage.getWallTimeNanos() / 1e6
+                        + ", \"rowsIn\": " + stage.getNumRowsIn()
+                        + ", \"rowsOut\": " + stage.getNumRowsOut()
+                        + ", \"allocatedBytes\": " + stage.getAllocatedBytes()
+                        + ", \"peakHeapUpperBoundBytes\": " + stage.getPeakHeapUpperBoundBytes() + "}")
+                .collect(Collectors.joining(",\n", "{\n  \"stages\": [\n", "\n  ]\n}\n"));
+    }
+
+    public void writeJson(String filename) {
+        try {
+            Files.write(Paths.get(filename), toJson().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Metrics could not be written to file", e);
+        }
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private long getAllocatedBytes() {
+        if (threadMXBean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocationMXBean = (com.sun.management.ThreadMXBean) threadMXBean;
+            if (allocationMXBean.isThreadAllocatedMemorySupported() && allocationMXBean.isThreadAllocatedMemoryEnabled()) {
+                return allocationMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,54 @@
+package thesis.engine.metrics;
+
+public class StageMetrics {
+
+    private final String stageName;
+    private final long wallTimeNanos;
+    private final int numRowsIn, numRowsOut;
+    private final long allocatedBytes;
+    private final long peakHeapUpperBoundBytes;
+
+    StageMetrics(String stageName, long wallTimeNanos, int numRowsIn, int numRowsOut, long allocatedBytes, long peakHeapUpperBoundBytes) {
+        this.stageName = stageName;
+        this.wallTimeNanos = wallTimeNanos;
+        this.numRowsIn = numRowsIn;
+        this.numRowsOut = numRowsOut;
+        this.allocatedBytes = allocatedBytes;
+        this.peakHeapUpperBoundBytes = peakHeapUpperBoundBytes;
+    }
+
+    public String getStageName() {
+        return stageName;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    public int getNumRowsIn() {
+        return numRowsIn;
+    }
+
+    public int getNumRowsOut() {
+        return numRowsOut;
+    }
+
+    /**
+     * Bytes allocated by the calling thread during the stage, -1 if the JVM does not support measuring it. Stages
+     * running with a parallelism above 1 also allocate on fork-join worker threads, which are not included, so
+     * the figure is a lower bound for them.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Sum of the peak usages of the heap memory pools during the stage. The pools peak at different times, e.g.
+     * the young generation before and the old generation after a collection, so this is an upper bound of the
+     * peak heap usage rather than the peak itself. Recording resets the peaks of the pools, see
+     * {@link RecordingPreProcessingMetrics}.
+     */
+    public long getPeakHeapUpperBoundBytes() {
+        return peakHeapUpperBoundBytes;
+    }
+}
@@ -0,0 +1,27 @@
+package thesis.engine.sampling;
+
+import weka.core.Attribute;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps class values to stratum numbers. Nominal values are their own stratum, numeric values are numbered
+ * in order of appearance.
+ */
+class ClassStrata {
+
+    private final boolean isNominal;
+    private final Map<Double, Integer> numericStrata = new HashMap<>();
+
+    ClassStrata(Attribute classAttribute) {
+        this.isNominal = classAttribute.isNominal();
+    }
+
+    int stratumOf(double classValue) {
+        if (isNominal) {
+            return (int) classValue;
+        }
+        return numericStrata.computeIfAbsent(classValue, value -> numericStrata.size());
+    }
+}
@@ -0,0 +1,99 @@
+package thesis.engine.sampling;
+
+import thesis.engine.column.ColumnStore;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Balances the classes of a data set that is passed chunk by chunk, e.g. by
+ * {@link thesis.engine.FileProcessingEngine#readDataSetFromFileInChunks}. Rows with a missing class value are dropped.
+ */
+public class StratifiedDataSetBalancer implements Consumer<Instances> {
+
+    private final Instances header;
+    private final ClassStrata classStrata;
+    private final StratifiedReservoirSampler<Instance> sampler;
+
+    /**
+     * A capacity per class bounds the memory needed, at the price of sampling only from that many rows per class.
+     * Chunks arrive before the class counts are known, so the capacity has to be given, e.g. the size of the
+     * smallest class when undersampling.
+     */
+    public StratifiedDataSetBalancer(Instances header, StratifiedReservoirSampler.Mode mode, int capacityPerClass, long seed) {
+        if (header.classIndex() < 0) {
+            throw new IllegalArgumentException("Data set " + header.relationName() + " has no class attribute to balance");
+        }
+        this.header = new Instances(header, 0);
+        this.classStrata = new ClassStrata(header.classAttribute());
+        this.sampler = new StratifiedReservoirSampler<>(mode, capacityPerClass, seed);
+    }
+
+    @Override
+    public void accept(Instances chunk) {
+        for (Instance instance : chunk) {
+            if (!instance.classIsMissing()) {
+                sampler.offer(classStrata.stratumOf(instance.classValue()), instance);
+            }
+        }
+    }
+
+    public Instances getBalancedDataSet() {
+        List<Instance> sample = sampler.sample();
+        Instances balancedDataSet = new Instances(header, sample.size());
+        for (Instance instance : sample) {
+            balancedDataSet.add(instance);
+        }
+        return balancedDataSet;
+    }
+
+    /**
+     * Selects the rows of a balanced sample of a column store in their original order. Undersampling
+     * only keeps as many rows per class in memory as the smallest class has.
+     */
+    public static int[] selectRows(ColumnStore columns, StratifiedReservoirSampler.Mode mode, long seed) {
+        if (columns.classIndex() < 0) {
+            throw new IllegalArgumentException("Data set " + columns.getHeader().relationName() + " has no class attribute to balance");
+        }
+        ClassStrata classStrata = new ClassStrata(columns.attribute(columns.classIndex()));
+        int classIndex = columns.classIndex();
+        int[] strata = new int[columns.numRows()];
+        int[] classCounts = new int[0];
+        for (int row = 0; row < strata.length; row++) {
+            if (columns.isMissing(classIndex, row)) {
+                strata[row] = -1;
+                continue;
+            }
+            strata[row] = classStrata.stratumOf(columns.value(classIndex, row));
+            if (strata[row] >= classCounts.length) {
+                classCounts = Arrays.copyOf(classCounts, strata[row] + 1);
+            }
+            classCounts[strata[row]]++;
+        }
+
+        StratifiedReservoirSampler<Integer> sampler = new StratifiedReservoirSampler<>(mode,
+                getCapacityPerClass(classCounts, mode), seed);
+        for (int row = 0; row < strata.length; row++) {
+            if (strata[row] >= 0) {
+                sampler.offer(strata[row], row);
+            }
+        }
+        return sampler.sample().stream().mapToInt(Integer::intValue).sorted().toArray();
+    }
+
+    private static int getCapacityPerClass(int[] classCounts, StratifiedReservoirSampler.Mode mode) {
+        if (mode == StratifiedReservoirSampler.Mode.OVERSAMPLE) {
+            return Integer.MAX_VALUE;
+        }
+        int capacity = Integer.MAX_VALUE;
+        for (int classCount : classCounts) {
+            if (classCount > 0) {
+                capacity = Math.min(capacity, classCount);
+            }
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,121 @@
+package thesis.engine.sampling;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Balances strata in a single pass over a stream of items. Every stratum keeps a uniform random sample of at
+ * most capacityPerStratum items (reservoir sampling), so items may be offered in any number of chunks.
+ * Samples only depend on the seed and on the order in which items are offered.
+ */
+public class StratifiedReservoirSampler<T> {
+
+    public enum Mode {
+        /** Every stratum is reduced to the size of the smallest one. */
+        UNDERSAMPLE,
+        /** Every stratum is filled up to the size of the largest one by drawing with replacement. */
+        OVERSAMPLE
+    }
+
+    private final Mode mode;
+    private final int capacityPerStratum;
+    private final SplittableRandom random;
+    private final List<List<T>> reservoirs = new ArrayList<>();
+    private long[] numOffered = new long[0];
+
+    public StratifiedReservoirSampler(Mode mode, long seed) {
+        this(mode, Integer.MAX_VALUE, seed);
+    }
+
+    public StratifiedReservoirSampler(Mode mode, int capacityPerStratum, long seed) {
+        if (capacityPerStratum < 1) {
+            throw new IllegalArgumentException("Capacity per stratum must be at least 1 but was " + capacityPerStratum);
+        }
+        this.mode = mode;
+        this.capacityPerStratum = capacityPerStratum;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public void offer(int stratum, T item) {
+        if (stratum < 0) {
+            throw new IllegalArgumentException("Stratum must not be negative but was " + stratum);
+        }
+        ensureStratum(stratum);
+        long offered = ++numOffered[stratum];
+        List<T> reservoir = reservoirs.get(stratum);
+        if (reservoir.size() < capacityPerStratum) {
+            reservoir.add(item);
+            return;
+        }
+        long slot = random.nextLong(offered);
+        if (slot < capacityPerStratum) {
+            reservoir.set((int) slot, item);
+        }
+    }
+
+    private void ensureStratum(int stratum) {
+        if (stratum < reservoirs.size()) {
+            return;
+        }
+        numOffered = Arrays.copyOf(numOffered, stratum + 1);
+        while (reservoirs.size() <= stratum) {
+            reservoirs.add(new ArrayList<>());
+        }
+    }
+
+    public int numStrata() {
+        return reservoirs.size();
+    }
+
+    public long getNumOffered(int stratum) {
+        return stratum < numOffered.length ? numOffered[stratum] : 0;
+    }
+
+    /**
+     * Returns the balanced sample grouped by stratum. Strata nothing was offered for are left out. Drawing
+     * consumes randomness, so the sampler should not be used any more afterwards.
+     */
+    public List<T> sample() {
+        int sampleSizePerStratum = getSampleSizePerStratum();
+        if (sampleSizePerStratum == 0) {
+            return Collections.emptyList();
+        }
+
+        List<T> sample = new ArrayList<>();
+        for (List<T> reservoir : reservoirs) {
+            if (reservoir.isEmpty()) {
+                continue;
+            }
+            int size = reservoir.size();
+            if (sampleSizePerStratum <= size) {
+                // Partial Fisher-Yates shuffle, the first sampleSizePerStratum slots form the sample
+                for (int i = 0; i < sampleSizePerStratum; i++) {
+                    Collections.swap(reservoir, i, i + random.nextInt(size - i));
+                    sample.add(reservoir.get(i));
+                }
+            } else {
+                sample.addAll(reservoir);
+                for (int i = size; i < sampleSizePerStratum; i++) {
+                    sample.add(reservoir.get(random.nextInt(size)));
+                }
+            }
+        }
+        return sample;
+    }
+
+    private int getSampleSizePerStratum() {
+        int sampleSize = mode == Mode.UNDERSAMPLE ? Integer.MAX_VALUE : 0;
+        for (List<T> reservoir : reservoirs) {
+            if (reservoir.isEmpty()) {
+                continue;
+            }
+            sampleSize = mode == Mode.UNDERSAMPLE
+                    ? Math.min(sampleSize, reservoir.size())
+                    : Math.max(sampleSize, reservoir.size());
+        }
+        return sampleSize == Integer.MAX_VALUE ? 0 : sampleSize;
+    }
+}
@@ -1,16 +1,38 @@
 package thesis.engine.selection;
 
+import thesis.engine.column.ColumnSource;
+import thesis.engine.column.ColumnStore;
 import weka.core.Attribute;
 import weka.core.Instances;
 
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 public abstract class AttributeSelectionStrategy {
 
+    private static final long SEED_INCREMENT = 0x9E3779B97F4A7C15L;
+    private static final int DEFAULT_MERIT_CACHE_SIZE = 10000;
+    private static final int ITERATION_CHUNK_SIZE = 1 << 16;
+    private static final int ITERATION_BLOCK_SIZE = 1 << 10;
+
     private final int minSetSize, maxSetSize, maxIterations;
     private final Instances dataSet;
+    private ColumnSource columns;
+    private CorrelationMatrix correlationMatrix;
+    private long seed = new Random().nextLong();
+    private int parallelism = 1;
+    private double sparseThreshold = ColumnStore.DEFAULT_SPARSE_THRESHOLD;
+    private SubsetMeritCache meritCache = new SubsetMeritCache(DEFAULT_MERIT_CACHE_SIZE);
+    private final LongAdder numEvaluations = new LongAdder();
+    private int maxEvaluationsWithoutImprovement;
+    private double minRelativeImprovement;
+    private long timeBudgetMillis, evaluationBudget;
+    private volatile SelectionReport report;
 
     AttributeSelectionStrategy(Instances dataSet, int minSetSize, int maxSetSize, int maxIterations) {
         this.dataSet = dataSet;
@@ -23,28 +45,337 @@ public abstract class AttributeSelectionStrategy {
         return dataSet;
     }
 
+    int getMinSetSize() {
+        return minSetSize;
+    }
+
+    int getMaxSetSize() {
+        return maxSetSize;
+    }
+
+    /**
+     * Counts the subset evaluations requested so far, including those answered by the merit cache.
+     */
+    public long getNumEvaluations() {
+        return numEvaluations.sum();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Every subset is derived from the seed and its iteration number only, so runs with the same seed
+     * generate and select the same subsets regardless of the parallelism.
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    public void setParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be at least 1 but was " + parallelism);
+        }
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Sets the fraction of missing or 0 values from which a column of the column copy of the data set is stored
+     * sparsely, so its correlations are computed over its entries only. Takes effect when the copy is made, i.e.
+     * before the first evaluation. Values above 1 keep every column dense.
+     */
+    public void setSparseThreshold(double sparseThreshold) {
+        if (Double.isNaN(sparseThreshold) || sparseThreshold < 0) {
+            throw new IllegalArgumentException("Sparse threshold must not be negative but was " + sparseThreshold);
+        }
+        this.sparseThreshold = sparseThreshold;
+    }
+
+    public SubsetMeritCache getMeritCache() {
+        return meritCache;
+    }
+
+    /**
+     * Sets the number of subset merits remembered across evaluations, 0 disables the cache.
+     */
+    public void setMeritCacheSize(int meritCacheSize) {
+        this.meritCache = meritCacheSize == 0 ? null : new SubsetMeritCache(meritCacheSize);
+    }
+
+    /**
+     * Stops a run once the best merit did not improve by more than the relative minimum improvement for the
+     * passed number of evaluations, 0 disables early stopping.
+     */
+    public void setEarlyStopping(int maxEvaluationsWithoutImprovement, double minRelativeImprovement) {
+        if (maxEvaluationsWithoutImprovement < 0) {
+            throw new IllegalArgumentException("Maximum number of evaluations without improvement must not be negative but was "
+                    + maxEvaluationsWithoutImprovement);
+        }
+        if (!(minRelativeImprovement >= 0)) {
+            throw new IllegalArgumentException("Minimum relative improvement must not be negative but was " + minRelativeImprovement);
+        }
+        this.maxEvaluationsWithoutImprovement = maxEvaluationsWithoutImprovement;
+        this.minRelativeImprovement = minRelativeImprovement;
+    }
+
+    /**
+     * Limits the wall-clock time of a run including the preparation of the correlations, 0 disables the limit.
+     */
+    public void setTimeBudget(long timeBudgetMillis) {
+        if (timeBudgetMillis < 0) {
+            throw new IllegalArgumentException("Time budget must not be negative but was " + timeBudgetMillis);
+        }
+        this.timeBudgetMillis = timeBudgetMillis;
+    }
+
+    /**
+     * Limits the number of subset evaluations of a run, 0 disables the limit.
+     */
+    public void setEvaluationBudget(long evaluationBudget) {
+        if (evaluationBudget < 0) {
+            throw new IllegalArgumentException("Evaluation budget must not be negative but was " + evaluationBudget);
+        }
+        this.evaluationBudget = evaluationBudget;
+    }
+
+    /**
+     * Returns the report of the current or last run, null if nothing was run yet.
+     */
+    public SelectionReport getReport() {
+        return report;
+    }
+
+    SelectionReport startReport() {
+        SelectionReport report = new SelectionReport(maxEvaluationsWithoutImprovement, minRelativeImprovement,
+                timeBudgetMillis, evaluationBudget);
+        this.report = report;
+        return report;
+    }
+
+    /**
+     * Evaluates subsets on the passed columns instead of a column copy of the data set, e.g. on a
+     * {@link thesis.engine.column.LazyArffColumns} whose header was passed as data set.
+     */
+    public synchronized void setColumns(ColumnSource columns) {
+        if (columns.numColumns() != dataSet.numAttributes() || columns.classIndex() != dataSet.classIndex()) {
+            throw new IllegalArgumentException("Columns do not match the attributes of data set " + dataSet.relationName());
+        }
+        this.columns = columns;
+        this.correlationMatrix = null;
+        if (meritCache != null) {
+            meritCache.clear();
+        }
+    }
+
+    /**
+     * Evaluates subsets on accumulated correlations, so the data set itself does not have to be held in memory.
+     * Passing the accumulator again after more rows were added to it refreshes the correlations.
+     */
+    public synchronized void setCorrelations(CorrelationAccumulator accumulator) {
+        if (accumulator.numColumns() != dataSet.numAttributes() || accumulator.classIndex() != dataSet.classIndex()) {
+            throw new IllegalArgumentException("Correlations do not match the attributes of data set " + dataSet.relationName());
+        }
+        this.correlationMatrix = new CorrelationMatrix(accumulator);
+        if (meritCache != null) {
+            meritCache.clear();
+        }
+    }
+
+    /**
+     * Evaluates subsets on a correlation matrix shared with other strategies on the same data set. The matrix
+     * fills itself thread-safely, so strategies running concurrently compute every coefficient only once.
+     */
+    public synchronized void setCorrelationMatrix(CorrelationMatrix correlationMatrix) {
+        if (correlationMatrix.numAttributes() != dataSet.numAttributes() || correlationMatrix.classIndex() != dataSet.classIndex()) {
+            throw new IllegalArgumentException("Correlation matrix does not match the attributes of data set " + dataSet.relationName());
+        }
+        this.correlationMatrix = correlationMatrix;
+        if (meritCache != null) {
+            meritCache.clear();
+        }
+    }
+
+    synchronized ColumnSource getColumns() {
+        if (columns == null) {
+            ColumnStore store = ColumnStore.of(dataSet);
+            store.compressSparseColumns(sparseThreshold);
+            columns = store;
+        }
+        return columns;
+    }
+
+    synchronized CorrelationMatrix getCorrelationMatrix() {
+        if (correlationMatrix == null) {
+            correlationMatrix = new CorrelationMatrix(getColumns());
+        }
+        return correlationMatrix;
+    }
+
     public String[] getAttributesToRemove() {
-        List<Set<Attribute>> attributeSubSets = generateAttributeSubsets();
-        Set<Attribute> bestAttributeSet = getBestAttributeSet(attributeSubSets);
-        Set<Attribute> attributesToRemove = findAttributesToRemove(bestAttributeSet);
+        return selectAttributes().getAttributesToRemove();
+    }
 
-        return attributesToRemove.stream().map(Attribute::name).toArray(String[]::new);
+    /**
+     * Runs the strategy and returns its best subset together with the report of the run.
+     */
+    public SelectionResult selectAttributes() {
+        ScoredAttributeSubset bestAttributeSubset = findBestAttributeSubsets(1).get(0);
+        return new SelectionResult(this, bestAttributeSubset, getReport());
     }
 
-    List<Set<Attribute>> generateAttributeSubsets() {
-        List<Set<Attribute>> attributeSubSets = new ArrayList<>();
-        ThreadLocalRandom random = ThreadLocalRandom.current();
+    /**
+     * Draws maxIterations random subsets one after another and keeps only the best ones, so memory usage
+     * does not grow with the number of iterations. Stops earlier when the run converged or exhausted its
+     * budget, see {@link #getReport()}.
+     */
+    public List<ScoredAttributeSubset> findBestAttributeSubsets(int numBestSubsets) {
+        SelectionReport report = startReport();
+        int[] candidateAttributeIndices = getCandidateAttributeIndices();
+        prepareEvaluation();
 
-        for (int i = 0; i < maxIterations; i++) {
-            Set<Attribute> currentAttributeSet = new HashSet<>();
+        // Iterations run in chunks, so a stopped run does not have to skip all remaining iterations one by one,
+        // and chunks run in blocks, which check whether the run stopped and record their improvements at once
+        TopAttributeSubsets bestSubsets = runWithParallelism(() -> {
+            TopAttributeSubsets chunkBestSubsets = new TopAttributeSubsets(numBestSubsets);
+            for (long first = 0; first < maxIterations && !report.isStopped(); first += ITERATION_CHUNK_SIZE) {
+                int firstIteration = (int) first;
+                int lastIteration = (int) Math.min(first + ITERATION_CHUNK_SIZE, maxIterations);
+                chunkBestSubsets.merge(indices((lastIteration - firstIteration + ITERATION_BLOCK_SIZE - 1) / ITERATION_BLOCK_SIZE)
+                        .filter(block -> !report.isStopped())
+                        .mapToObj(block -> {
+                            int fromIteration = firstIteration + block * ITERATION_BLOCK_SIZE;
+                            return evaluateRandomSubsets(fromIteration, Math.min(fromIteration + ITERATION_BLOCK_SIZE, lastIteration),
+                                    candidateAttributeIndices, numBestSubsets, report);
+                        })
+                        .collect(() -> new TopAttributeSubsets(numBestSubsets), TopAttributeSubsets::merge, TopAttributeSubsets::merge));
+            }
+            return chunkBestSubsets;
+        });
+        report.finish();
+
+        if (bestSubsets.isEmpty()) {
+            throw new RuntimeException("No attribute subsets were evaluated");
+        }
+        return bestSubsets.toList();
+    }
 
-            for (int j = 0; j <= random.nextInt(minSetSize, maxSetSize); j++) {
-                int randomAttributeIndex = random.nextInt(0, dataSet.numAttributes());
-                currentAttributeSet.add(dataSet.attribute(randomAttributeIndex));
+    /**
+     * Evaluates the random subsets of a block of iterations on one thread. Only the subsets improving on the best
+     * one of the report are recorded, once per block or earlier if the budget or the convergence criterion
+     * could stop the run before the block ends.
+     */
+    private TopAttributeSubsets evaluateRandomSubsets(int fromIteration, int toIteration, int[] candidateAttributeIndices,
+                                                      int numBestSubsets, SelectionReport report) {
+        TopAttributeSubsets blockBestSubsets = new TopAttributeSubsets(numBestSubsets);
+        int iteration = fromIteration;
+        while (iteration < toIteration && !report.isStopped()) {
+            int firstIteration = iteration;
+            int lastIteration = firstIteration + (int) Math.min(toIteration - firstIteration, report.getEvaluationsUntilStop());
+            ScoredAttributeSubset bestSubset = report.getBestSubset();
+            List<ScoredAttributeSubset> improvingSubsets = new ArrayList<>();
+            for (; iteration < lastIteration; iteration++) {
+                BitSet attributeSubset = generateAttributeSubsetBits(iteration, candidateAttributeIndices);
+                ScoredAttributeSubset scoredSubset = new ScoredAttributeSubset(attributeSubset, evaluateMerit(attributeSubset), iteration);
+                report.countEvaluation();
+                blockBestSubsets.offer(scoredSubset);
+                if (bestSubset == null || scoredSubset.isBetterThan(bestSubset)) {
+                    improvingSubsets.add(scoredSubset);
+                    bestSubset = scoredSubset;
+                }
             }
-            attributeSubSets.add(currentAttributeSet);
+            report.record(improvingSubsets, firstIteration, lastIteration - firstIteration);
+        }
+        return blockBestSubsets;
+    }
+
+    Set<Attribute> getBestAttributeSet(List<Set<Attribute>> attributeSubSets) {
+        prepareEvaluation();
+
+        TopAttributeSubsets bestSubsets = runWithParallelism(() -> indices(attributeSubSets.size())
+                .mapToObj(index -> {
+                    BitSet attributeSubset = toAttributeBits(attributeSubSets.get(index));
+                    return new ScoredAttributeSubset(attributeSubset, evaluateMerit(attributeSubset), index);
+                })
+                .collect(() -> new TopAttributeSubsets(1), TopAttributeSubsets::offer, TopAttributeSubsets::merge));
+
+        return attributeSubSets.get(bestSubsets.toList().get(0).getIteration());
+    }
+
+    /**
+     * Scores the passed subsets, numbered from firstIteration on, in the order they were passed.
+     */
+    List<ScoredAttributeSubset> evaluateAttributeSubsets(List<BitSet> attributeSubsets, int firstIteration) {
+        return runWithParallelism(() -> indices(attributeSubsets.size())
+                .mapToObj(index -> new ScoredAttributeSubset(attributeSubsets.get(index),
+                        evaluateMerit(attributeSubsets.get(index)), firstIteration + index))
+                .collect(Collectors.toList()));
+    }
+
+    List<Set<Attribute>> generateAttributeSubsets() {
+        int[] candidateAttributeIndices = getCandidateAttributeIndices();
+        return runWithParallelism(() -> indices(maxIterations)
+                .mapToObj(iteration -> toAttributeSet(generateAttributeSubsetBits(iteration, candidateAttributeIndices)))
+                .collect(Collectors.toList()));
+    }
+
+    BitSet generateAttributeSubsetBits(int iteration, int[] candidateAttributeIndices) {
+        SplittableRandom random = new SplittableRandom(seed + iteration * SEED_INCREMENT);
+        int setSize = Math.min(random.nextInt(minSetSize, maxSetSize + 1), candidateAttributeIndices.length);
+        BitSet attributeSubset = new BitSet(dataSet.numAttributes());
+
+        while (attributeSubset.cardinality() < setSize) {
+            attributeSubset.set(candidateAttributeIndices[random.nextInt(candidateAttributeIndices.length)]);
+        }
+        return attributeSubset;
+    }
+
+    BitSet toAttributeBits(Set<Attribute> attributeSet) {
+        BitSet attributeSubset = new BitSet(dataSet.numAttributes());
+        attributeSet.forEach(attribute -> attributeSubset.set(attribute.index()));
+        return attributeSubset;
+    }
+
+    Set<Attribute> toAttributeSet(BitSet attributeSubset) {
+        return attributeSubset.stream()
+                .mapToObj(dataSet::attribute)
+                .collect(Collectors.toSet());
+    }
+
+    int[] getCandidateAttributeIndices() {
+        return IntStream.range(0, dataSet.numAttributes())
+                .filter(index -> index != dataSet.classIndex())
+                .toArray();
+    }
+
+    IntStream indices(int count) {
+        return indices(0, count);
+    }
+
+    IntStream indices(int from, int to) {
+        IntStream indices = IntStream.range(from, to);
+        return parallelism > 1 ? indices.parallel() : indices;
+    }
+
+    <T> T runWithParallelism(Supplier<T> task) {
+        if (parallelism == 1) {
+            return task.get();
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.submit(task::get).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Evaluation of attribute subsets was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("An error occurred when evaluating attribute subsets", e.getCause());
+        } finally {
+            pool.shutdown();
         }
-        return attributeSubSets;
     }
 
     Set<Attribute> findAttributesToRemove(Set<Attribute> bestAttributeSet) {
@@ -54,5 +385,21 @@ public abstract class AttributeSelectionStrategy {
                 .collect(Collectors.toSet());
     }
 
-    abstract Set<Attribute> getBestAttributeSet(List<Set<Attribute>> attributeSubSets);
+    void countEvaluations(int count) {
+        numEvaluations.add(count);
+    }
+
+    double evaluateMerit(BitSet attributeSubset) {
+        numEvaluations.increment();
+        SubsetMeritCache meritCache = this.meritCache;
+        return meritCache == null ? calculateMerit(attributeSubset) : meritCache.getMerit(attributeSubset, this::calculateMerit);
+    }
+
+    /**
+     * Called once before subsets are evaluated, possibly from several threads.
+     */
+    void prepareEvaluation() {
+    }
+
+    abstract double calculateMerit(BitSet attributeSubset);
 }
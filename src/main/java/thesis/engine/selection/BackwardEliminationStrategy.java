@@ -0,0 +1,43 @@
+package thesis.engine.selection;
+
+import weka.core.Instances;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Starts with all attributes and removes the attribute whose removal improves the merit most, until no removal
+ * improves it any more or the minimum set size is reached. Subsets larger than the maximum set size are always reduced.
+ */
+public class BackwardEliminationStrategy extends SubsetSearchStrategy {
+
+    public BackwardEliminationStrategy(Instances dataSet, int minSetSize, int maxSetSize) {
+        super(dataSet, minSetSize, maxSetSize);
+    }
+
+    @Override
+    void search(int[] candidateAttributeIndices, Search search) {
+        BitSet allAttributes = new BitSet();
+        for (int attributeIndex : candidateAttributeIndices) {
+            allAttributes.set(attributeIndex);
+        }
+        ScoredAttributeSubset scoredSubset = search.evaluate(allAttributes);
+        IncrementalMerit attributeSubset = createIncrementalMerit(allAttributes);
+
+        while (attributeSubset.size() > Math.max(getMinSetSize(), 1) && !search.isStopped()) {
+            int[] removedAttributeIndices = attributeSubset.getAttributeBits().stream().toArray();
+            if (attributeSubset.size() == 2) {
+                // Removing the less relevant attribute first leaves the more relevant one ranked first
+                int[] byRelevance = byClassRelevance(removedAttributeIndices);
+                removedAttributeIndices = new int[] {byRelevance[1], byRelevance[0]};
+            }
+            List<ScoredAttributeSubset> reducedSubsets = search.evaluateWithEachRemoved(attributeSubset, removedAttributeIndices);
+            int bestIndex = indexOfBest(reducedSubsets);
+            if (attributeSubset.size() <= getMaxSetSize() && !reducedSubsets.get(bestIndex).isBetterThan(scoredSubset)) {
+                return;
+            }
+            scoredSubset = reducedSubsets.get(bestIndex);
+            attributeSubset.remove(removedAttributeIndices[bestIndex]);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package thesis.engine.selection;
+
+import weka.core.Instances;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+/**
+ * Forward best-first search: the best subset found so far that was not expanded yet is extended by every
+ * single attribute, which allows backtracking to earlier subsets when an extension does not pay off. The
+ * search stops after a number of consecutive expansions that did not improve the best subset.
+ */
+public class BestFirstSelectionStrategy extends SubsetSearchStrategy {
+
+    private static final int DEFAULT_MAX_STALE_EXPANSIONS = 5;
+
+    private final int maxStaleExpansions;
+
+    public BestFirstSelectionStrategy(Instances dataSet, int minSetSize, int maxSetSize) {
+        this(dataSet, minSetSize, maxSetSize, DEFAULT_MAX_STALE_EXPANSIONS);
+    }
+
+    public BestFirstSelectionStrategy(Instances dataSet, int minSetSize, int maxSetSize, int maxStaleExpansions) {
+        super(dataSet, minSetSize, maxSetSize);
+        if (maxStaleExpansions < 1) {
+            throw new IllegalArgumentException("Maximum number of stale expansions must be positive but was " + maxStaleExpansions);
+        }
+        this.maxStaleExpansions = maxStaleExpansions;
+    }
+
+    @Override
+    void search(int[] candidateAttributeIndices, Search search) {
+        // Subsets below the minimum set size are only a way to the reported ones, so they are expanded last
+        PriorityQueue<ScoredAttributeSubset> openSubsets = new PriorityQueue<>((first, second) -> {
+            boolean isFirstReported = first.size() >= getMinSetSize();
+            if (isFirstReported != second.size() >= getMinSetSize()) {
+                return isFirstReported ? -1 : 1;
+            }
+            return first.isBetterThan(second) ? -1 : second.isBetterThan(first) ? 1 : 0;
+        });
+        Set<BitSet> visitedSubsets = new HashSet<>();
+        BitSet attributeSubset = new BitSet();
+        int numStaleExpansions = 0;
+
+        while (numStaleExpansions < maxStaleExpansions && !search.isStopped()) {
+            ScoredAttributeSubset previousBestSubset = search.getBestSubset();
+            BitSet expandedBits = attributeSubset;
+            IncrementalMerit expandedSubset = createIncrementalMerit(expandedBits);
+            int[] addedAttributeIndices = Arrays.stream(expandedBits.isEmpty()
+                            ? byClassRelevance(candidateAttributeIndices)
+                            : withoutAttributesOf(expandedSubset, candidateAttributeIndices))
+                    .filter(attributeIndex -> visitedSubsets.add(withAttribute(expandedBits, attributeIndex)))
+                    .toArray();
+            for (ScoredAttributeSubset extendedSubset : search.evaluateWithEachAdded(expandedSubset, addedAttributeIndices)) {
+                if (extendedSubset.size() < getMaxSetSize()) {
+                    openSubsets.add(extendedSubset);
+                }
+            }
+
+            // Expansions below the minimum set size cannot improve anything reported and are not counted
+            if (search.getBestSubset() != null) {
+                numStaleExpansions = search.getBestSubset() == previousBestSubset ? numStaleExpansions + 1 : 0;
+            }
+            if (openSubsets.isEmpty()) {
+                return;
+            }
+            attributeSubset = openSubsets.poll().getAttributeBits();
+        }
+    }
+
+    private static BitSet withAttribute(BitSet attributeSubset, int attributeIndex) {
+        BitSet extendedSubset = (BitSet) attributeSubset.clone();
+        extendedSubset.set(attributeIndex);
+        return extendedSubset;
+    }
+}
@@ -0,0 +1,161 @@
+package thesis.engine.selection;
+
+import thesis.engine.column.ColumnSource;
+import thesis.engine.column.ColumnStore;
+import weka.core.Instances;
+
+/**
+ * Streaming Pearson correlations of all column pairs of a data set, the class column included. Every pair keeps
+ * its count, means, sums of squared deviations and co-moment, which are updated chunk by chunk and can be merged
+ * with the accumulator of another part of the data set, e.g. one filled by another thread. Rows where either
+ * value of a pair is missing are left out of that pair.
+ */
+public class CorrelationAccumulator {
+
+    private final int numColumns;
+    private final int classIndex;
+    private final long[] counts;
+    private final double[] firstMeans, secondMeans;
+    private final double[] firstSquares, secondSquares;
+    private final double[] coMoments;
+
+    public CorrelationAccumulator(int numColumns, int classIndex) {
+        this.numColumns = numColumns;
+        this.classIndex = classIndex;
+        int numPairs = (int) ((long) numColumns * (numColumns - 1) / 2);
+        this.counts = new long[numPairs];
+        this.firstMeans = new double[numPairs];
+        this.secondMeans = new double[numPairs];
+        this.firstSquares = new double[numPairs];
+        this.secondSquares = new double[numPairs];
+        this.coMoments = new double[numPairs];
+    }
+
+    public static CorrelationAccumulator forStructure(Instances structure) {
+        return new CorrelationAccumulator(structure.numAttributes(), structure.classIndex());
+    }
+
+    public static CorrelationAccumulator of(ColumnSource columns) {
+        CorrelationAccumulator accumulator = new CorrelationAccumulator(columns.numColumns(), columns.classIndex());
+        accumulator.accumulate(columns);
+        return accumulator;
+    }
+
+    public int numColumns() {
+        return numColumns;
+    }
+
+    public int classIndex() {
+        return classIndex;
+    }
+
+    public void accumulate(Instances chunk) {
+        accumulate(ColumnStore.of(chunk));
+    }
+
+    /**
+     * Adds the rows of a chunk with the same columns. Every pair is summarized over the chunk first and then
+     * merged in, which is numerically as stable as summarizing everything at once.
+     */
+    public void accumulate(ColumnSource chunk) {
+        if (chunk.numColumns() != numColumns) {
+            throw new IllegalArgumentException("Chunk has " + chunk.numColumns() + " columns but " + numColumns + " were expected");
+        }
+        for (int first = 0; first < numColumns - 1; first++) {
+            double[] firstValues = chunk.column(first);
+            for (int second = first + 1; second < numColumns; second++) {
+                accumulatePair(pairIndex(first, second, numColumns), firstValues, chunk.column(second));
+            }
+        }
+    }
+
+    private void accumulatePair(int pair, double[] firstValues, double[] secondValues) {
+        long count = 0;
+        double firstSum = 0, secondSum = 0;
+        for (int row = 0; row < firstValues.length; row++) {
+            if (!Double.isNaN(firstValues[row]) && !Double.isNaN(secondValues[row])) {
+                count++;
+                firstSum += firstValues[row];
+                secondSum += secondValues[row];
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+
+        double firstMean = firstSum / count;
+        double secondMean = secondSum / count;
+        double firstSquare = 0, secondSquare = 0, coMoment = 0;
+        for (int row = 0; row < firstValues.length; row++) {
+            if (!Double.isNaN(firstValues[row]) && !Double.isNaN(secondValues[row])) {
+                double firstDeviation = firstValues[row] - firstMean;
+                double secondDeviation = secondValues[row] - secondMean;
+                firstSquare += firstDeviation * firstDeviation;
+                secondSquare += secondDeviation * secondDeviation;
+                coMoment += firstDeviation * secondDeviation;
+            }
+        }
+        merge(pair, count, firstMean, secondMean, firstSquare, secondSquare, coMoment);
+    }
+
+    public void merge(CorrelationAccumulator other) {
+        if (other.numColumns != numColumns) {
+            throw new IllegalArgumentException("Accumulator has " + other.numColumns + " columns but " + numColumns + " were expected");
+        }
+        for (int pair = 0; pair < counts.length; pair++) {
+            if (other.counts[pair] > 0) {
+                merge(pair, other.counts[pair], other.firstMeans[pair], other.secondMeans[pair],
+                        other.firstSquares[pair], other.secondSquares[pair], other.coMoments[pair]);
+            }
+        }
+    }
+
+    // Pairwise combination of moments by Chan et al.
+    private void merge(int pair, long count, double firstMean, double secondMean,
+                       double firstSquare, double secondSquare, double coMoment) {
+        long totalCount = counts[pair] + count;
+        double firstDelta = firstMean - firstMeans[pair];
+        double secondDelta = secondMean - secondMeans[pair];
+        double weight = (double) counts[pair] * count / totalCount;
+
+        firstSquares[pair] += firstSquare + firstDelta * firstDelta * weight;
+        secondSquares[pair] += secondSquare + secondDelta * secondDelta * weight;
+        coMoments[pair] += coMoment + firstDelta * secondDelta * weight;
+        firstMeans[pair] += firstDelta * count / totalCount;
+        secondMeans[pair] += secondDelta * count / totalCount;
+        counts[pair] = totalCount;
+    }
+
+    public long getCount(int firstColumn, int secondColumn) {
+        return firstColumn == secondColumn ? 0 : counts[pairIndex(firstColumn, secondColumn)];
+    }
+
+    /**
+     * Returns the Pearson correlation of both columns, NaN if less than two rows have both values or a column is constant.
+     */
+    public double getCorrelation(int firstColumn, int secondColumn) {
+        if (firstColumn == secondColumn) {
+            return 1.0;
+        }
+        int pair = pairIndex(firstColumn, secondColumn);
+        if (counts[pair] < 2) {
+            return Double.NaN;
+        }
+        return coMoments[pair] / Math.sqrt(firstSquares[pair] * secondSquares[pair]);
+    }
+
+    public double getClassCorrelation(int column) {
+        if (classIndex == -1) {
+            throw new IllegalStateException("Data set has no class attribute to correlate with");
+        }
+        return getCorrelation(column, classIndex);
+    }
+
+    private int pairIndex(int firstColumn, int secondColumn) {
+        return pairIndex(Math.min(firstColumn, secondColumn), Math.max(firstColumn, secondColumn), numColumns);
+    }
+
+    static int pairIndex(int first, int second, int numColumns) {
+        return (int) ((long) first * (2L * numColumns - first - 1) / 2) + (second - first - 1);
+    }
+}
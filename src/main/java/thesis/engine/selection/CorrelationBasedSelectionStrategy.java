@@ -1,13 +1,10 @@
 package thesis.engine.selection;
 
-import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
 import org.apache.commons.math3.util.CombinatoricsUtils;
 import weka.core.Attribute;
-import weka.core.Instance;
 import weka.core.Instances;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -33,57 +30,90 @@ public class CorrelationBasedSelectionStrategy extends AttributeSelectionStrateg
     }
 
     @Override
-    Set<Attribute> getBestAttributeSet(List<Set<Attribute>> attributeSubSets) {
-        List<Correlation> correlationsForSubsets = attributeSubSets
-                .stream()
-                .map(this::calculateCorrelation)
-                .collect(Collectors.toList());
-        correlationsForSubsets.sort((corr1, corr2) ->
-                (int) Math.round(Math.abs(corr1.correlationCoefficient) - Math.abs(corr2.correlationCoefficient)));
-        Collections.reverse(correlationsForSubsets);
+    void prepareEvaluation() {
+        getCorrelationMatrix();
+    }
+
+    @Override
+    double calculateMerit(BitSet attributeSubset) {
+        int[] attributeIndices = attributeSubset.stream().toArray();
+        return calculateInterCorrelation(attributeIndices) / calculateIntraCorrelation(attributeIndices);
+    }
 
-        return correlationsForSubsets.get(0).attributeSet;
+    IncrementalMerit createIncrementalMerit(BitSet attributeSubset) {
+        return new IncrementalMerit(getCorrelationMatrix(), attributeSubset);
+    }
+
+    /**
+     * Scores the subsets that differ from the passed one by adding, or removing, one of the passed attributes,
+     * numbered from firstIteration on, in the order the attributes were passed. Each merit is updated from the
+     * one of the passed subset instead of being calculated from scratch and bypasses the merit cache.
+     */
+    List<ScoredAttributeSubset> evaluateNeighbourSubsets(IncrementalMerit attributeSubset, int[] attributeIndices,
+                                                         boolean isAdded, int firstIteration) {
+        countEvaluations(attributeIndices.length);
+        BitSet attributeBits = attributeSubset.getAttributeBits();
+        return runWithParallelism(() -> indices(attributeIndices.length)
+                .mapToObj(index -> {
+                    int attributeIndex = attributeIndices[index];
+                    BitSet neighbourSubset = (BitSet) attributeBits.clone();
+                    neighbourSubset.set(attributeIndex, isAdded);
+                    double merit = isAdded
+                            ? attributeSubset.getMeritWithAdded(attributeIndex)
+                            : attributeSubset.getMeritWithRemoved(attributeIndex);
+                    return new ScoredAttributeSubset(neighbourSubset, merit, firstIteration + index);
+                })
+                .collect(Collectors.toList()));
     }
 
     Correlation calculateCorrelation(Set<Attribute> attributeSubSet) {
-        double interCorrelation = calculateInterCorrelation(attributeSubSet, getClassAttributeValues());
-        double intraCorrelation = calculateIntraCorrelation(attributeSubSet);
+        return new Correlation(attributeSubSet, calculateMerit(toAttributeBits(attributeSubSet)));
+    }
 
-        return new Correlation(attributeSubSet, interCorrelation / intraCorrelation);
+    double calculateInterCorrelation(Set<Attribute> attributeSubSet) {
+        return calculateInterCorrelation(toAttributeBits(attributeSubSet).stream().toArray());
+    }
+
+    double calculateInterCorrelation(int[] attributeIndices) {
+        CorrelationMatrix correlationMatrix = getCorrelationMatrix();
+
+        double sumCorrelationCoefficients = 0;
+        for (int attributeIndex : attributeIndices) {
+            sumCorrelationCoefficients += correlationMatrix.getClassCorrelation(attributeIndex);
+        }
+        return sumCorrelationCoefficients / attributeIndices.length;
     }
 
     double calculateInterCorrelation(Set<Attribute> attributeSubSet, double[] classAttributeValues) {
-        return attributeSubSet
+        double[][] attributeValues = attributeSubSet
                 .stream()
-                .map(attribute -> Collections.list(getDataSet().enumerateInstances())
-                        .stream()
-                        .mapToDouble(instance -> instance.value(attribute))
-                        .toArray())
-                .collect(Collectors.averagingDouble(attributeValues ->
-                        new PearsonsCorrelation().correlation(attributeValues, classAttributeValues)));
+                .map(attribute -> getColumns().column(attribute.index()))
+                .toArray(double[][]::new);
+        double[] correlationCoefficients = new double[attributeValues.length];
+        CorrelationKernel.correlate(classAttributeValues, attributeValues, correlationCoefficients);
+
+        double sumCorrelationCoefficients = 0;
+        for (double correlationCoefficient : correlationCoefficients) {
+            sumCorrelationCoefficients += correlationCoefficient;
+        }
+        return sumCorrelationCoefficients / attributeValues.length;
     }
 
     double calculateIntraCorrelation(Set<Attribute> attributeSubSet) {
-        List<Attribute> attributes = new ArrayList<>();
-        attributes.addAll(attributeSubSet);
+        return calculateIntraCorrelation(toAttributeBits(attributeSubSet).stream().toArray());
+    }
+
+    double calculateIntraCorrelation(int[] attributeIndices) {
+        CorrelationMatrix correlationMatrix = getCorrelationMatrix();
 
         double sumCorrelationCoefficients = 0;
 
-        for (int i = 0; i < attributes.size() - 1; i++) {
-            double[] valuesOfFirstAttribute = getDataSet().attributeToDoubleArray(attributes.get(i).index());
-            for (int j = i + 1; j < attributes.size(); j++) {
-                double[] valuesOfSecondAttribute = getDataSet().attributeToDoubleArray(attributes.get(j).index());
-                sumCorrelationCoefficients += new PearsonsCorrelation().correlation(valuesOfFirstAttribute, valuesOfSecondAttribute);
+        for (int i = 0; i < attributeIndices.length - 1; i++) {
+            for (int j = i + 1; j < attributeIndices.length; j++) {
+                sumCorrelationCoefficients += correlationMatrix.getCorrelation(attributeIndices[i], attributeIndices[j]);
             }
         }
-        return sumCorrelationCoefficients / CombinatoricsUtils.factorialDouble(attributeSubSet.size() - 1);
-    }
-
-    private double[] getClassAttributeValues() {
-        return Collections.list(getDataSet().enumerateInstances())
-                .stream()
-                .mapToDouble(Instance::classValue)
-                .toArray();
+        return sumCorrelationCoefficients / CombinatoricsUtils.factorialDouble(attributeIndices.length - 1);
     }
 
 }
@@ -0,0 +1,231 @@
+package thesis.engine.selection;
+
+import thesis.engine.column.SparseColumn;
+
+import java.util.Arrays;
+
+/**
+ * Allocation-free Pearson correlation of primitive columns. Means, variances and the covariance are summed in
+ * a single pass over values shifted by the first value of each column, which keeps the sums small for data far
+ * from zero. The loops are unrolled by four with independent accumulators, so the JIT can overlap or vectorize
+ * them. Missing (NaN) values make the correlation NaN, as do constant columns and fewer than two rows.
+ */
+public class CorrelationKernel {
+
+    public static double correlate(double[] first, double[] second) {
+        if (first.length != second.length) {
+            throw new IllegalArgumentException("Columns have " + first.length + " and " + second.length + " values");
+        }
+        return correlate(first, second, first.length);
+    }
+
+    /**
+     * Correlates the first length values of both columns.
+     */
+    public static double correlate(double[] first, double[] second, int length) {
+        if (length < 2) {
+            return Double.NaN;
+        }
+        double firstShift = first[0], secondShift = second[0];
+        double firstSum0 = 0, firstSum1 = 0, firstSum2 = 0, firstSum3 = 0;
+        double secondSum0 = 0, secondSum1 = 0, secondSum2 = 0, secondSum3 = 0;
+        double firstSquares0 = 0, firstSquares1 = 0, firstSquares2 = 0, firstSquares3 = 0;
+        double secondSquares0 = 0, secondSquares1 = 0, secondSquares2 = 0, secondSquares3 = 0;
+        double products0 = 0, products1 = 0, products2 = 0, products3 = 0;
+
+        int row = 0;
+        for (; row <= length - 4; row += 4) {
+            double x0 = first[row] - firstShift, x1 = first[row + 1] - firstShift;
+            double x2 = first[row + 2] - firstShift, x3 = first[row + 3] - firstShift;
+            double y0 = second[row] - secondShift, y1 = second[row + 1] - secondShift;
+            double y2 = second[row + 2] - secondShift, y3 = second[row + 3] - secondShift;
+            firstSum0 += x0; firstSum1 += x1; firstSum2 += x2; firstSum3 += x3;
+            secondSum0 += y0; secondSum1 += y1; secondSum2 += y2; secondSum3 += y3;
+            firstSquares0 += x0 * x0; firstSquares1 += x1 * x1; firstSquares2 += x2 * x2; firstSquares3 += x3 * x3;
+            secondSquares0 += y0 * y0; secondSquares1 += y1 * y1; secondSquares2 += y2 * y2; secondSquares3 += y3 * y3;
+            products0 += x0 * y0; products1 += x1 * y1; products2 += x2 * y2; products3 += x3 * y3;
+        }
+        for (; row < length; row++) {
+            double x = first[row] - firstShift, y = second[row] - secondShift;
+            firstSum0 += x;
+            secondSum0 += y;
+            firstSquares0 += x * x;
+            secondSquares0 += y * y;
+            products0 += x * y;
+        }
+
+        return pearson(length, firstSum0 + firstSum1 + firstSum2 + firstSum3,
+                firstSquares0 + firstSquares1 + firstSquares2 + firstSquares3,
+                secondSum0 + secondSum1 + secondSum2 + secondSum3,
+                secondSquares0 + secondSquares1 + secondSquares2 + secondSquares3,
+                products0 + products1 + products2 + products3);
+    }
+
+    /**
+     * Correlates one column with each of the others and writes the coefficients to the result array in the
+     * order of the others. The sums of the one column are computed only once.
+     */
+    public static void correlate(double[] column, double[][] others, double[] results) {
+        if (results.length < others.length) {
+            throw new IllegalArgumentException("Result array holds " + results.length + " coefficients but "
+                    + others.length + " are needed");
+        }
+        int length = column.length;
+        if (length < 2) {
+            Arrays.fill(results, 0, others.length, Double.NaN);
+            return;
+        }
+
+        double shift = column[0];
+        double sum0 = 0, sum1 = 0, sum2 = 0, sum3 = 0;
+        double squares0 = 0, squares1 = 0, squares2 = 0, squares3 = 0;
+        int row = 0;
+        for (; row <= length - 4; row += 4) {
+            double x0 = column[row] - shift, x1 = column[row + 1] - shift;
+            double x2 = column[row + 2] - shift, x3 = column[row + 3] - shift;
+            sum0 += x0; sum1 += x1; sum2 += x2; sum3 += x3;
+            squares0 += x0 * x0; squares1 += x1 * x1; squares2 += x2 * x2; squares3 += x3 * x3;
+        }
+        for (; row < length; row++) {
+            double x = column[row] - shift;
+            sum0 += x;
+            squares0 += x * x;
+        }
+        double sum = sum0 + sum1 + sum2 + sum3;
+        double squares = squares0 + squares1 + squares2 + squares3;
+
+        for (int other = 0; other < others.length; other++) {
+            results[other] = correlateWith(column, shift, sum, squares, others[other]);
+        }
+    }
+
+    private static double correlateWith(double[] column, double shift, double sum, double squares, double[] other) {
+        if (other.length != column.length) {
+            throw new IllegalArgumentException("Columns have " + column.length + " and " + other.length + " values");
+        }
+        int length = column.length;
+        double otherShift = other[0];
+        double otherSum0 = 0, otherSum1 = 0, otherSum2 = 0, otherSum3 = 0;
+        double otherSquares0 = 0, otherSquares1 = 0, otherSquares2 = 0, otherSquares3 = 0;
+        double products0 = 0, products1 = 0, products2 = 0, products3 = 0;
+
+        int row = 0;
+        for (; row <= length - 4; row += 4) {
+            double y0 = other[row] - otherShift, y1 = other[row + 1] - otherShift;
+            double y2 = other[row + 2] - otherShift, y3 = other[row + 3] - otherShift;
+            otherSum0 += y0; otherSum1 += y1; otherSum2 += y2; otherSum3 += y3;
+            otherSquares0 += y0 * y0; otherSquares1 += y1 * y1; otherSquares2 += y2 * y2; otherSquares3 += y3 * y3;
+            products0 += (column[row] - shift) * y0;
+            products1 += (column[row + 1] - shift) * y1;
+            products2 += (column[row + 2] - shift) * y2;
+            products3 += (column[row + 3] - shift) * y3;
+        }
+        for (; row < length; row++) {
+            double y = other[row] - otherShift;
+            otherSum0 += y;
+            otherSquares0 += y * y;
+            products0 += (column[row] - shift) * y;
+        }
+
+        return pearson(length, sum, squares, otherSum0 + otherSum1 + otherSum2 + otherSum3,
+                otherSquares0 + otherSquares1 + otherSquares2 + otherSquares3,
+                products0 + products1 + products2 + products3);
+    }
+
+    /**
+     * Correlates a sparse column with a dense one. The sparse column is shifted by its default value, so only
+     * its entries contribute to its sums and to the products.
+     */
+    public static double correlate(SparseColumn first, double[] second) {
+        if (first.numRows() != second.length) {
+            throw new IllegalArgumentException("Columns have " + first.numRows() + " and " + second.length + " values");
+        }
+        if (first.numDefaults() == 0) {
+            return correlate(first.toDense(), second);
+        }
+        int length = second.length;
+        if (length < 2 || Double.isNaN(first.getDefaultValue())) {
+            return Double.NaN;
+        }
+        double secondShift = second[0];
+        double secondSum0 = 0, secondSum1 = 0, secondSum2 = 0, secondSum3 = 0;
+        double secondSquares0 = 0, secondSquares1 = 0, secondSquares2 = 0, secondSquares3 = 0;
+        int row = 0;
+        for (; row <= length - 4; row += 4) {
+            double y0 = second[row] - secondShift, y1 = second[row + 1] - secondShift;
+            double y2 = second[row + 2] - secondShift, y3 = second[row + 3] - secondShift;
+            secondSum0 += y0; secondSum1 += y1; secondSum2 += y2; secondSum3 += y3;
+            secondSquares0 += y0 * y0; secondSquares1 += y1 * y1; secondSquares2 += y2 * y2; secondSquares3 += y3 * y3;
+        }
+        for (; row < length; row++) {
+            double y = second[row] - secondShift;
+            secondSum0 += y;
+            secondSquares0 += y * y;
+        }
+
+        double firstShift = first.getDefaultValue();
+        int[] rows = first.rows();
+        double[] values = first.values();
+        double firstSum = 0, firstSquares = 0, products = 0;
+        for (int entry = 0; entry < rows.length; entry++) {
+            double x = values[entry] - firstShift;
+            firstSum += x;
+            firstSquares += x * x;
+            products += x * (second[rows[entry]] - secondShift);
+        }
+
+        return pearson(length, firstSum, firstSquares, secondSum0 + secondSum1 + secondSum2 + secondSum3,
+                secondSquares0 + secondSquares1 + secondSquares2 + secondSquares3, products);
+    }
+
+    /**
+     * Correlates two sparse columns in a single merge of their entries, both shifted by their default values.
+     */
+    public static double correlate(SparseColumn first, SparseColumn second) {
+        if (first.numRows() != second.numRows()) {
+            throw new IllegalArgumentException("Columns have " + first.numRows() + " and " + second.numRows() + " values");
+        }
+        if (first.numDefaults() == 0) {
+            return correlate(second, first.toDense());
+        }
+        if (second.numDefaults() == 0) {
+            return correlate(first, second.toDense());
+        }
+        int length = first.numRows();
+        if (length < 2 || Double.isNaN(first.getDefaultValue()) || Double.isNaN(second.getDefaultValue())) {
+            return Double.NaN;
+        }
+        double firstShift = first.getDefaultValue(), secondShift = second.getDefaultValue();
+        int[] firstRows = first.rows(), secondRows = second.rows();
+        double[] firstValues = first.values(), secondValues = second.values();
+        double firstSum = 0, firstSquares = 0, secondSum = 0, secondSquares = 0, products = 0;
+        int firstEntry = 0, secondEntry = 0;
+        while (firstEntry < firstRows.length || secondEntry < secondRows.length) {
+            int firstRow = firstEntry < firstRows.length ? firstRows[firstEntry] : Integer.MAX_VALUE;
+            int secondRow = secondEntry < secondRows.length ? secondRows[secondEntry] : Integer.MAX_VALUE;
+            double x = 0, y = 0;
+            if (firstRow <= secondRow) {
+                x = firstValues[firstEntry++] - firstShift;
+                firstSum += x;
+                firstSquares += x * x;
+            }
+            if (secondRow <= firstRow) {
+                y = secondValues[secondEntry++] - secondShift;
+                secondSum += y;
+                secondSquares += y * y;
+            }
+            products += x * y;
+        }
+
+        return pearson(length, firstSum, firstSquares, secondSum, secondSquares, products);
+    }
+
+    // Sums are of shifted values, which leaves the centered moments unchanged
+    private static double pearson(int length, double firstSum, double firstSquares,
+                                  double secondSum, double secondSquares, double products) {
+        double firstVariance = firstSquares - firstSum * firstSum / length;
+        double secondVariance = secondSquares - secondSum * secondSum / length;
+        double covariance = products - firstSum * secondSum / length;
+        return covariance / Math.sqrt(firstVariance * secondVariance);
+    }
+}
@@ -0,0 +1,115 @@
+package thesis.engine.selection;
+
+import thesis.engine.column.ColumnSource;
+import thesis.engine.column.ColumnStore;
+import thesis.engine.column.SparseColumn;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lazily filled matrix of the pairwise attribute correlations and the attribute to class correlations
+ * of a data set. Every coefficient is computed at most once per data set (apart from threads racing for
+ * the same entry, which compute identical values) and looked up afterwards.
+ */
+public class CorrelationMatrix {
+
+    // A signalling NaN never results from arithmetic, so it cannot collide with a computed coefficient.
+    private static final long NOT_COMPUTED = 0x7ff0000000000001L;
+
+    private final ColumnSource columns;
+    private final int numAttributes;
+    private final int classIndex;
+    private final AtomicLongArray attributeCorrelations;
+    private final AtomicLongArray classCorrelations;
+
+    public CorrelationMatrix(ColumnSource columns) {
+        this.columns = columns;
+        this.numAttributes = columns.numColumns();
+        this.classIndex = columns.classIndex();
+        this.attributeCorrelations = createEntries((int) ((long) numAttributes * (numAttributes - 1) / 2));
+        this.classCorrelations = createEntries(numAttributes);
+    }
+
+    /**
+     * Fills the matrix from accumulated correlations, no columns are needed afterwards.
+     */
+    public CorrelationMatrix(CorrelationAccumulator accumulator) {
+        this.columns = null;
+        this.numAttributes = accumulator.numColumns();
+        this.classIndex = accumulator.classIndex();
+        this.attributeCorrelations = createEntries((int) ((long) numAttributes * (numAttributes - 1) / 2));
+        this.classCorrelations = createEntries(numAttributes);
+        for (int first = 0; first < numAttributes - 1; first++) {
+            for (int second = first + 1; second < numAttributes; second++) {
+                attributeCorrelations.set(pairIndex(first, second), Double.doubleToRawLongBits(accumulator.getCorrelation(first, second)));
+            }
+        }
+        if (classIndex != -1) {
+            for (int attributeIndex = 0; attributeIndex < numAttributes; attributeIndex++) {
+                classCorrelations.set(attributeIndex, Double.doubleToRawLongBits(accumulator.getClassCorrelation(attributeIndex)));
+            }
+        }
+    }
+
+    private static AtomicLongArray createEntries(int length) {
+        AtomicLongArray entries = new AtomicLongArray(length);
+        for (int i = 0; i < length; i++) {
+            entries.set(i, NOT_COMPUTED);
+        }
+        return entries;
+    }
+
+    public int numAttributes() {
+        return numAttributes;
+    }
+
+    public int classIndex() {
+        return classIndex;
+    }
+
+    public double getCorrelation(int firstAttributeIndex, int secondAttributeIndex) {
+        if (firstAttributeIndex == secondAttributeIndex) {
+            return 1.0;
+        }
+        int first = Math.min(firstAttributeIndex, secondAttributeIndex);
+        int second = Math.max(firstAttributeIndex, secondAttributeIndex);
+        return getOrCompute(attributeCorrelations, pairIndex(first, second), first, second);
+    }
+
+    public double getClassCorrelation(int attributeIndex) {
+        if (classIndex == -1) {
+            throw new IllegalStateException("Data set has no class attribute to correlate with");
+        }
+        return getOrCompute(classCorrelations, attributeIndex, attributeIndex, classIndex);
+    }
+
+    private double getOrCompute(AtomicLongArray entries, int entryIndex, int firstColumn, int secondColumn) {
+        long bits = entries.get(entryIndex);
+        if (bits == NOT_COMPUTED) {
+            bits = Double.doubleToRawLongBits(correlate(firstColumn, secondColumn));
+            entries.set(entryIndex, bits);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    // Sparse columns of a column store are correlated over their entries without being decompressed
+    double correlate(int firstColumn, int secondColumn) {
+        if (columns instanceof ColumnStore) {
+            ColumnStore store = (ColumnStore) columns;
+            SparseColumn first = store.sparseColumn(firstColumn);
+            SparseColumn second = store.sparseColumn(secondColumn);
+            if (first != null && second != null) {
+                return CorrelationKernel.correlate(first, second);
+            } else if (first != null) {
+                return CorrelationKernel.correlate(first, store.column(secondColumn));
+            } else if (second != null) {
+                return CorrelationKernel.correlate(second, store.column(firstColumn));
+            }
+        }
+        return CorrelationKernel.correlate(columns.column(firstColumn), columns.column(secondColumn));
+    }
+
+    private int pairIndex(int first, int second) {
+        return CorrelationAccumulator.pairIndex(first, second, numAttributes);
+    }
+}
@@ -0,0 +1,37 @@
+package thesis.engine.selection;
+
+import weka.core.Instances;
+
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Starts with no attributes and adds the attribute that improves the merit most, until no attribute improves it
+ * any more or the maximum set size is reached. Subsets smaller than the minimum set size are always extended.
+ */
+public class GreedyForwardSelectionStrategy extends SubsetSearchStrategy {
+
+    public GreedyForwardSelectionStrategy(Instances dataSet, int minSetSize, int maxSetSize) {
+        super(dataSet, minSetSize, maxSetSize);
+    }
+
+    @Override
+    void search(int[] candidateAttributeIndices, Search search) {
+        IncrementalMerit attributeSubset = createIncrementalMerit(new BitSet());
+        ScoredAttributeSubset scoredSubset = null;
+
+        while (attributeSubset.size() < Math.min(getMaxSetSize(), candidateAttributeIndices.length) && !search.isStopped()) {
+            int[] addedAttributeIndices = attributeSubset.size() == 0
+                    ? byClassRelevance(candidateAttributeIndices)
+                    : withoutAttributesOf(attributeSubset, candidateAttributeIndices);
+            List<ScoredAttributeSubset> extendedSubsets = search.evaluateWithEachAdded(attributeSubset, addedAttributeIndices);
+            int bestIndex = indexOfBest(extendedSubsets);
+            if (scoredSubset != null && attributeSubset.size() >= getMinSetSize()
+                    && !extendedSubsets.get(bestIndex).isBetterThan(scoredSubset)) {
+                return;
+            }
+            scoredSubset = extendedSubsets.get(bestIndex);
+            attributeSubset.add(addedAttributeIndices[bestIndex]);
+        }
+    }
+}
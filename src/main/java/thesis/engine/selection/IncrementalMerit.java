@@ -0,0 +1,167 @@
+package thesis.engine.selection;
+
+import org.apache.commons.math3.util.CombinatoricsUtils;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Correlation-based merit of a subset that changes one attribute at a time. The sums of the attribute to class
+ * correlations and of the pairwise attribute correlations are kept up to date, so adding or removing an attribute,
+ * or scoring the subset with one attribute added or removed, looks up only the k correlations of that attribute
+ * instead of all k * k pairs. Merits equal those of {@link CorrelationBasedSelectionStrategy} up to rounding.
+ * Undefined (NaN) correlations are counted instead of summed, so removing an attribute with an undefined
+ * correlation makes the merit defined again. Subtracting correlations leaves rounding residue in the sums, so
+ * they are recomputed after as many removals as the subset has attributes, which keeps removing amortized
+ * O(k), and a subset of fewer than two attributes has a pair sum of exactly 0.
+ */
+public class IncrementalMerit {
+
+    private final CorrelationMatrix correlationMatrix;
+    private int[] attributeIndices = new int[8];
+    private int size;
+    private double interCorrelationSum;
+    private double intraCorrelationSum;
+    private int numUndefinedCorrelations;
+    private int numRemovalsSinceRecompute;
+
+    public IncrementalMerit(CorrelationMatrix correlationMatrix) {
+        this.correlationMatrix = correlationMatrix;
+    }
+
+    public IncrementalMerit(CorrelationMatrix correlationMatrix, BitSet attributeSubset) {
+        this(correlationMatrix);
+        attributeSubset.stream().forEach(this::add);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int attributeIndex) {
+        return indexOf(attributeIndex) != -1;
+    }
+
+    public BitSet getAttributeBits() {
+        BitSet attributeSubset = new BitSet(correlationMatrix.numAttributes());
+        for (int i = 0; i < size; i++) {
+            attributeSubset.set(attributeIndices[i]);
+        }
+        return attributeSubset;
+    }
+
+    public void add(int attributeIndex) {
+        if (contains(attributeIndex)) {
+            throw new IllegalArgumentException("Attribute " + attributeIndex + " is already part of the subset");
+        }
+        interCorrelationSum += getClassCorrelation(attributeIndex);
+        intraCorrelationSum += sumCorrelations(attributeIndex);
+        numUndefinedCorrelations += countUndefinedCorrelations(attributeIndex);
+        if (size == attributeIndices.length) {
+            attributeIndices = Arrays.copyOf(attributeIndices, size * 2);
+        }
+        attributeIndices[size++] = attributeIndex;
+    }
+
+    public void remove(int attributeIndex) {
+        int index = indexOf(attributeIndex);
+        if (index == -1) {
+            throw new IllegalArgumentException("Attribute " + attributeIndex + " is not part of the subset");
+        }
+        interCorrelationSum -= getClassCorrelation(attributeIndex);
+        intraCorrelationSum -= sumCorrelations(attributeIndex);
+        numUndefinedCorrelations -= countUndefinedCorrelations(attributeIndex);
+        attributeIndices[index] = attributeIndices[--size];
+        if (++numRemovalsSinceRecompute >= size) {
+            recomputeSums();
+        }
+    }
+
+    private void recomputeSums() {
+        int[] remainingAttributeIndices = Arrays.copyOf(attributeIndices, size);
+        interCorrelationSum = 0;
+        intraCorrelationSum = 0;
+        numUndefinedCorrelations = 0;
+        numRemovalsSinceRecompute = 0;
+        size = 0;
+        for (int attributeIndex : remainingAttributeIndices) {
+            interCorrelationSum += getClassCorrelation(attributeIndex);
+            intraCorrelationSum += sumCorrelations(attributeIndex);
+            numUndefinedCorrelations += countUndefinedCorrelations(attributeIndex);
+            size++;
+        }
+    }
+
+    public double getMerit() {
+        return merit(interCorrelationSum, intraCorrelationSum, numUndefinedCorrelations, size);
+    }
+
+    /**
+     * Returns the merit of the subset with the attribute added, which must not be part of it.
+     */
+    public double getMeritWithAdded(int attributeIndex) {
+        return merit(interCorrelationSum + getClassCorrelation(attributeIndex),
+                intraCorrelationSum + sumCorrelations(attributeIndex),
+                numUndefinedCorrelations + countUndefinedCorrelations(attributeIndex), size + 1);
+    }
+
+    /**
+     * Returns the merit of the subset with the attribute removed, which must be part of it.
+     */
+    public double getMeritWithRemoved(int attributeIndex) {
+        return merit(interCorrelationSum - getClassCorrelation(attributeIndex),
+                intraCorrelationSum - sumCorrelations(attributeIndex),
+                numUndefinedCorrelations - countUndefinedCorrelations(attributeIndex), size - 1);
+    }
+
+    private double getClassCorrelation(int attributeIndex) {
+        double correlation = correlationMatrix.getClassCorrelation(attributeIndex);
+        return Double.isNaN(correlation) ? 0 : correlation;
+    }
+
+    // Sum of the defined correlations of the attribute with all other attributes of the subset
+    private double sumCorrelations(int attributeIndex) {
+        double sum = 0;
+        for (int i = 0; i < size; i++) {
+            if (attributeIndices[i] != attributeIndex) {
+                double correlation = correlationMatrix.getCorrelation(attributeIndex, attributeIndices[i]);
+                if (!Double.isNaN(correlation)) {
+                    sum += correlation;
+                }
+            }
+        }
+        return sum;
+    }
+
+    // Number of undefined correlations of the attribute with the class and all other attributes of the subset
+    private int countUndefinedCorrelations(int attributeIndex) {
+        int count = Double.isNaN(correlationMatrix.getClassCorrelation(attributeIndex)) ? 1 : 0;
+        for (int i = 0; i < size; i++) {
+            if (attributeIndices[i] != attributeIndex
+                    && Double.isNaN(correlationMatrix.getCorrelation(attributeIndex, attributeIndices[i]))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private int indexOf(int attributeIndex) {
+        for (int i = 0; i < size; i++) {
+            if (attributeIndices[i] == attributeIndex) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static double merit(double interCorrelationSum, double intraCorrelationSum, int numUndefinedCorrelations, int size) {
+        if (numUndefinedCorrelations > 0) {
+            return Double.NaN;
+        }
+        if (size < 2) {
+            // Without attribute pairs the sum is exactly 0, whatever is left over from subtracting correlations
+            intraCorrelationSum = 0;
+        }
+        return (interCorrelationSum / size) / (intraCorrelationSum / CombinatoricsUtils.factorialDouble(size - 1));
+    }
+}
@@ -0,0 +1,49 @@
+package thesis.engine.selection;
+
+import java.util.BitSet;
+
+public class ScoredAttributeSubset {
+
+    private final BitSet attributeIndices;
+    private final double merit;
+    private final int iteration;
+
+    ScoredAttributeSubset(BitSet attributeIndices, double merit, int iteration) {
+        this.attributeIndices = attributeIndices;
+        this.merit = merit;
+        this.iteration = iteration;
+    }
+
+    public int[] getAttributeIndices() {
+        return attributeIndices.stream().toArray();
+    }
+
+    BitSet getAttributeBits() {
+        return attributeIndices;
+    }
+
+    public int size() {
+        return attributeIndices.cardinality();
+    }
+
+    public double getMerit() {
+        return merit;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * Subsets are ranked by the absolute value of their merit, undefined merits rank last. Ties are resolved
+     * in favour of the subset generated first, which keeps rankings independent of the evaluation order.
+     */
+    public boolean isBetterThan(ScoredAttributeSubset other) {
+        double absoluteMerit = Math.abs(merit);
+        double otherAbsoluteMerit = Math.abs(other.merit);
+        if (Double.isNaN(absoluteMerit) || Double.isNaN(otherAbsoluteMerit)) {
+            return !Double.isNaN(absoluteMerit) || (Double.isNaN(otherAbsoluteMerit) && iteration < other.iteration);
+        }
+        return absoluteMerit > otherAbsoluteMerit || (absoluteMerit == otherAbsoluteMerit && iteration < other.iteration);
+    }
+}
@@ -0,0 +1,238 @@
+package thesis.engine.selection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Progress of one attribute selection run: the evaluations so far, every significant improvement of the best
+ * merit and why the run stopped. Evaluations are counted as they happen, so the report can be polled while
+ * the run is still going on. Parallel runs record the subsets that improve the best merit in chunks, so
+ * their threads only synchronize once per chunk. Stopping criteria only take effect once a subset within the
+ * size limits was evaluated, so a stopped run always has a result.
+ */
+public class SelectionReport {
+
+    public enum StopReason {
+        /** All iterations were run or the search ended by itself. */
+        COMPLETED,
+        /** The best merit did not improve significantly for the configured number of evaluations. */
+        CONVERGED,
+        TIME_BUDGET_EXHAUSTED,
+        EVALUATION_BUDGET_EXHAUSTED
+    }
+
+    public static class Improvement {
+        private final long evaluation;
+        private final long elapsedMillis;
+        private final double merit;
+
+        Improvement(long evaluation, long elapsedMillis, double merit) {
+            this.evaluation = evaluation;
+            this.elapsedMillis = elapsedMillis;
+            this.merit = merit;
+        }
+
+        public long getEvaluation() {
+            return evaluation;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        public double getMerit() {
+            return merit;
+        }
+    }
+
+    private final int maxEvaluationsWithoutImprovement;
+    private final double minRelativeImprovement;
+    private final long timeBudgetNanos;
+    private final long evaluationBudget;
+    private final long startNanos = System.nanoTime();
+    private final List<Improvement> improvements = new ArrayList<>();
+    private final LongAdder numEvaluations = new LongAdder();
+    private long lastImprovementEvaluation;
+    private long elapsedNanos = -1;
+    private ScoredAttributeSubset bestSubset;
+    private volatile StopReason stopReason;
+
+    SelectionReport(int maxEvaluationsWithoutImprovement, double minRelativeImprovement,
+                    long timeBudgetMillis, long evaluationBudget) {
+        this.maxEvaluationsWithoutImprovement = maxEvaluationsWithoutImprovement;
+        this.minRelativeImprovement = minRelativeImprovement;
+        this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        this.evaluationBudget = evaluationBudget;
+    }
+
+    /**
+     * Counts and records an evaluated subset. Subsets that are not reported, e.g. because they are outside the
+     * size limits, count towards the budgets but cannot improve the best merit.
+     */
+    void record(ScoredAttributeSubset subset, boolean isReported) {
+        countEvaluation();
+        record(isReported ? Collections.singletonList(subset) : Collections.emptyList(), subset.getIteration(), 1);
+    }
+
+    /**
+     * Counts an evaluation without locking. The count takes effect on the stopping criteria with the next
+     * recorded chunk.
+     */
+    void countEvaluation() {
+        numEvaluations.increment();
+    }
+
+    /**
+     * Records a chunk of numChunkEvaluations counted evaluations of the iterations from firstIteration on. Only
+     * the reported subsets that may improve the best merit have to be passed, in the order they were evaluated.
+     */
+    synchronized void record(List<ScoredAttributeSubset> subsets, long firstIteration, long numChunkEvaluations) {
+        long numEvaluations = this.numEvaluations.sum();
+        for (ScoredAttributeSubset subset : subsets) {
+            if (isSignificantImprovement(subset)) {
+                lastImprovementEvaluation = numEvaluations - numChunkEvaluations + subset.getIteration() - firstIteration + 1;
+                improvements.add(new Improvement(lastImprovementEvaluation,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos), subset.getMerit()));
+            }
+            if (bestSubset == null || subset.isBetterThan(bestSubset)) {
+                bestSubset = subset;
+            }
+        }
+        if (stopReason != null || bestSubset == null) {
+            return;
+        }
+        if (evaluationBudget > 0 && numEvaluations >= evaluationBudget) {
+            stopReason = StopReason.EVALUATION_BUDGET_EXHAUSTED;
+        } else if (maxEvaluationsWithoutImprovement > 0
+                && numEvaluations - lastImprovementEvaluation >= maxEvaluationsWithoutImprovement) {
+            stopReason = StopReason.CONVERGED;
+        }
+    }
+
+    // Improvements of the absolute merit by at most the minimum relative improvement are not significant
+    private boolean isSignificantImprovement(ScoredAttributeSubset subset) {
+        if (bestSubset == null) {
+            return true;
+        }
+        double merit = Math.abs(subset.getMerit());
+        double bestMerit = Math.abs(bestSubset.getMerit());
+        if (Double.isNaN(bestMerit)) {
+            return !Double.isNaN(merit);
+        }
+        return merit > bestMerit && merit - bestMerit > bestMerit * minRelativeImprovement;
+    }
+
+    /**
+     * Returns whether the run should stop, checking the time budget on every call. The random search calls it
+     * once per chunk of evaluations rather than per evaluation.
+     */
+    boolean isStopped() {
+        if (stopReason != null) {
+            return true;
+        }
+        if (timeBudgetNanos > 0 && System.nanoTime() - startNanos >= timeBudgetNanos) {
+            synchronized (this) {
+                if (stopReason == null && bestSubset != null) {
+                    stopReason = StopReason.TIME_BUDGET_EXHAUSTED;
+                }
+            }
+        }
+        return stopReason != null;
+    }
+
+    /**
+     * Returns how many more subsets may be evaluated, which is unlimited until a reported subset was evaluated.
+     */
+    synchronized long getRemainingEvaluations() {
+        if (evaluationBudget == 0 || bestSubset == null) {
+            return Long.MAX_VALUE;
+        }
+        return Math.max(evaluationBudget - numEvaluations.sum(), 0);
+    }
+
+    /**
+     * Returns after how many more evaluations the budget or the convergence criterion can stop the run at the
+     * earliest, which is one until a reported subset was evaluated. Chunks ending there keep these criteria
+     * exact when evaluating on one thread.
+     */
+    synchronized long getEvaluationsUntilStop() {
+        if (evaluationBudget == 0 && maxEvaluationsWithoutImprovement == 0) {
+            return Long.MAX_VALUE;
+        }
+        if (bestSubset == null) {
+            return 1;
+        }
+        long numEvaluations = this.numEvaluations.sum();
+        long evaluationsUntilStop = Long.MAX_VALUE;
+        if (evaluationBudget > 0) {
+            evaluationsUntilStop = evaluationBudget - numEvaluations;
+        }
+        if (maxEvaluationsWithoutImprovement > 0) {
+            evaluationsUntilStop = Math.min(evaluationsUntilStop,
+                    maxEvaluationsWithoutImprovement - (numEvaluations - lastImprovementEvaluation));
+        }
+        return Math.max(evaluationsUntilStop, 1);
+    }
+
+    /**
+     * Returns the best reported subset so far, null if there is none yet.
+     */
+    synchronized ScoredAttributeSubset getBestSubset() {
+        return bestSubset;
+    }
+
+    synchronized void finish() {
+        elapsedNanos = System.nanoTime() - startNanos;
+        if (stopReason == null) {
+            stopReason = StopReason.COMPLETED;
+        }
+    }
+
+    /**
+     * Returns null while the run is still going on.
+     */
+    public StopReason getStopReason() {
+        return isFinished() ? stopReason : null;
+    }
+
+    public synchronized boolean isFinished() {
+        return elapsedNanos >= 0;
+    }
+
+    public long getNumEvaluations() {
+        return numEvaluations.sum();
+    }
+
+    public synchronized long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(isFinished() ? elapsedNanos : System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Returns the merit of the best reported subset, NaN if there is none yet.
+     */
+    public synchronized double getBestMerit() {
+        return bestSubset == null ? Double.NaN : bestSubset.getMerit();
+    }
+
+    public synchronized long getNumEvaluationsSinceImprovement() {
+        return numEvaluations.sum() - lastImprovementEvaluation;
+    }
+
+    /**
+     * Returns the significant improvements of the best merit in the order they were found.
+     */
+    public synchronized List<Improvement> getImprovements() {
+        return Collections.unmodifiableList(new ArrayList<>(improvements));
+    }
+
+    @Override
+    public synchronized String toString() {
+        return (isFinished() ? "Stopped (" + stopReason + ")" : "Running") + " after " + getNumEvaluations()
+                + " evaluations in " + getElapsedMillis() + " ms, best merit " + getBestMerit() + " after "
+                + improvements.size() + " improvements, last one " + getNumEvaluationsSinceImprovement()
+                + " evaluations ago";
+    }
+}
@@ -0,0 +1,74 @@
+package thesis.engine.selection;
+
+import weka.core.Attribute;
+
+/**
+ * Best attribute subset chosen by a strategy together with the report of the run that chose it.
+ */
+public class SelectionResult {
+
+    private final AttributeSelectionStrategy strategy;
+    private final ScoredAttributeSubset bestSubset;
+    private final SelectionReport report;
+    private final String[] selectedAttributes;
+    private final String[] attributesToRemove;
+
+    SelectionResult(AttributeSelectionStrategy strategy, ScoredAttributeSubset bestSubset, SelectionReport report) {
+        this.strategy = strategy;
+        this.bestSubset = bestSubset;
+        this.report = report;
+        this.selectedAttributes = bestSubset.getAttributeBits().stream()
+                .mapToObj(attributeIndex -> strategy.getDataSet().attribute(attributeIndex).name())
+                .toArray(String[]::new);
+        this.attributesToRemove = strategy.findAttributesToRemove(strategy.toAttributeSet(bestSubset.getAttributeBits()))
+                .stream()
+                .map(Attribute::name)
+                .toArray(String[]::new);
+    }
+
+    public AttributeSelectionStrategy getStrategy() {
+        return strategy;
+    }
+
+    public ScoredAttributeSubset getBestSubset() {
+        return bestSubset;
+    }
+
+    public double getMerit() {
+        return bestSubset.getMerit();
+    }
+
+    public SelectionReport getReport() {
+        return report;
+    }
+
+    /**
+     * Returns the names of the selected attributes in the order of the data set.
+     */
+    public String[] getSelectedAttributes() {
+        return selectedAttributes.clone();
+    }
+
+    public String[] getAttributesToRemove() {
+        return attributesToRemove.clone();
+    }
+
+    /**
+     * Ranks results by the absolute merit of their best subsets, undefined merits rank last. Iterations of
+     * different strategies are not comparable, so unlike subsets of one run equal merits are ties.
+     */
+    public boolean isBetterThan(SelectionResult other) {
+        double absoluteMerit = Math.abs(getMerit());
+        double otherAbsoluteMerit = Math.abs(other.getMerit());
+        if (Double.isNaN(otherAbsoluteMerit)) {
+            return !Double.isNaN(absoluteMerit);
+        }
+        return absoluteMerit > otherAbsoluteMerit;
+    }
+
+    @Override
+    public String toString() {
+        return strategy.getClass().getSimpleName() + " [" + strategy.getMinSetSize() + ", " + strategy.getMaxSetSize()
+                + "]: merit " + getMerit() + " of " + String.join(", ", selectedAttributes);
+    }
+}
@@ -0,0 +1,93 @@
+package thesis.engine.selection;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Bounded least-recently-used cache of subset merits keyed by the subset's attribute bits. Keys must not be
+ * modified after they have been passed to the cache.
+ */
+public class SubsetMeritCache {
+
+    private final int capacity;
+    private final Map<BitSet, Double> merits;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SubsetMeritCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive but was " + capacity);
+        }
+        this.capacity = capacity;
+        this.merits = new LinkedHashMap<BitSet, Double>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<BitSet, Double> eldest) {
+                boolean evict = size() > SubsetMeritCache.this.capacity;
+                if (evict) {
+                    evictions.increment();
+                }
+                return evict;
+            }
+        };
+    }
+
+    double getMerit(BitSet attributeSubset, ToDoubleFunction<BitSet> meritFunction) {
+        Double merit;
+        synchronized (merits) {
+            merit = merits.get(attributeSubset);
+        }
+        if (merit != null) {
+            hits.increment();
+            return merit;
+        }
+
+        misses.increment();
+        double calculatedMerit = meritFunction.applyAsDouble(attributeSubset);
+        synchronized (merits) {
+            merits.put(attributeSubset, calculatedMerit);
+        }
+        return calculatedMerit;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int size() {
+        synchronized (merits) {
+            return merits.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long lookups = getHits() + getMisses();
+        return lookups == 0 ? 0 : (double) getHits() / lookups;
+    }
+
+    public void clear() {
+        synchronized (merits) {
+            merits.clear();
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+}
@@ -0,0 +1,153 @@
+package thesis.engine.selection;
+
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Base of the strategies that search the subset space by adding or removing single attributes instead of
+ * drawing random subsets. Subsets are scored with the correlation-based merit, which is updated incrementally
+ * from the subset they were derived from; only subsets within the size limits are reported.
+ */
+public abstract class SubsetSearchStrategy extends CorrelationBasedSelectionStrategy {
+
+    SubsetSearchStrategy(Instances dataSet, int minSetSize, int maxSetSize) {
+        super(dataSet, minSetSize, maxSetSize, 0);
+    }
+
+    @Override
+    public List<ScoredAttributeSubset> findBestAttributeSubsets(int numBestSubsets) {
+        SelectionReport report = startReport();
+        int[] candidateAttributeIndices = getCandidateAttributeIndices();
+        prepareEvaluation();
+
+        Search search = new Search(numBestSubsets, report);
+        search(candidateAttributeIndices, search);
+        report.finish();
+        if (search.bestSubsets.isEmpty()) {
+            throw new RuntimeException("No attribute subsets were evaluated");
+        }
+        return search.bestSubsets.toList();
+    }
+
+    /**
+     * Runs the search until it ends by itself or {@link Search#isStopped()} returns true.
+     */
+    abstract void search(int[] candidateAttributeIndices, Search search);
+
+    /**
+     * Evaluates subsets for a search and keeps the best ones. Batches of subsets are cut to the remaining
+     * evaluation budget.
+     */
+    class Search {
+
+        private final TopAttributeSubsets bestSubsets;
+        private final SelectionReport report;
+        private ScoredAttributeSubset bestSubset;
+        private int numEvaluatedSubsets;
+
+        Search(int numBestSubsets, SelectionReport report) {
+            this.bestSubsets = new TopAttributeSubsets(numBestSubsets);
+            this.report = report;
+        }
+
+        boolean isStopped() {
+            return report.isStopped();
+        }
+
+        ScoredAttributeSubset evaluate(BitSet attributeSubset) {
+            List<BitSet> attributeSubsets = new ArrayList<>(1);
+            attributeSubsets.add(attributeSubset);
+            return evaluate(attributeSubsets).get(0);
+        }
+
+        List<ScoredAttributeSubset> evaluate(List<BitSet> attributeSubsets) {
+            int numSubsets = (int) Math.min(attributeSubsets.size(), report.getRemainingEvaluations());
+            return offer(evaluateAttributeSubsets(attributeSubsets.subList(0, numSubsets), numEvaluatedSubsets));
+        }
+
+        /**
+         * Scores the subset with each of the passed attributes added, in the order the attributes were passed.
+         */
+        List<ScoredAttributeSubset> evaluateWithEachAdded(IncrementalMerit attributeSubset, int[] attributeIndices) {
+            return offer(evaluateNeighbourSubsets(attributeSubset, withinBudget(attributeIndices), true, numEvaluatedSubsets));
+        }
+
+        /**
+         * Scores the subset with each of the passed attributes removed, in the order the attributes were passed.
+         */
+        List<ScoredAttributeSubset> evaluateWithEachRemoved(IncrementalMerit attributeSubset, int[] attributeIndices) {
+            return offer(evaluateNeighbourSubsets(attributeSubset, withinBudget(attributeIndices), false, numEvaluatedSubsets));
+        }
+
+        private int[] withinBudget(int[] attributeIndices) {
+            long remainingEvaluations = report.getRemainingEvaluations();
+            return attributeIndices.length <= remainingEvaluations ? attributeIndices
+                    : Arrays.copyOf(attributeIndices, (int) remainingEvaluations);
+        }
+
+        private List<ScoredAttributeSubset> offer(List<ScoredAttributeSubset> scoredSubsets) {
+            numEvaluatedSubsets += scoredSubsets.size();
+            for (ScoredAttributeSubset scoredSubset : scoredSubsets) {
+                boolean isReported = isWithinSizeLimits(scoredSubset.getAttributeBits());
+                report.record(scoredSubset, isReported);
+                if (isReported) {
+                    bestSubsets.offer(scoredSubset);
+                    if (bestSubset == null || scoredSubset.isBetterThan(bestSubset)) {
+                        bestSubset = scoredSubset;
+                    }
+                }
+            }
+            return scoredSubsets;
+        }
+
+        /**
+         * Returns the best subset within the size limits evaluated so far, or null if there is none.
+         */
+        ScoredAttributeSubset getBestSubset() {
+            return bestSubset;
+        }
+    }
+
+    boolean isWithinSizeLimits(BitSet attributeSubset) {
+        int size = attributeSubset.cardinality();
+        return size >= getMinSetSize() && size <= getMaxSetSize();
+    }
+
+    static int indexOfBest(List<ScoredAttributeSubset> scoredSubsets) {
+        int bestIndex = -1;
+        for (int index = 0; index < scoredSubsets.size(); index++) {
+            if (bestIndex == -1 || scoredSubsets.get(index).isBetterThan(scoredSubsets.get(bestIndex))) {
+                bestIndex = index;
+            }
+        }
+        return bestIndex;
+    }
+
+    /**
+     * Returns the attributes ordered by their absolute class correlation, highest first and undefined ones last.
+     * Single attribute subsets have no attribute pairs, so their merits are all infinite and they are ranked by
+     * evaluation order; evaluating them in this order ranks them by relevance instead of by attribute index.
+     */
+    int[] byClassRelevance(int[] attributeIndices) {
+        CorrelationMatrix correlationMatrix = getCorrelationMatrix();
+        return Arrays.stream(attributeIndices)
+                .boxed()
+                .sorted(Comparator.comparingDouble((Integer attributeIndex) -> {
+                    double relevance = Math.abs(correlationMatrix.getClassCorrelation(attributeIndex));
+                    return Double.isNaN(relevance) ? -1 : relevance;
+                }).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    static int[] withoutAttributesOf(IncrementalMerit attributeSubset, int[] attributeIndices) {
+        return Arrays.stream(attributeIndices)
+                .filter(attributeIndex -> !attributeSubset.contains(attributeIndex))
+                .toArray();
+    }
+}
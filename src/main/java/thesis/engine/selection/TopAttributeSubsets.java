@@ -0,0 +1,46 @@
+package thesis.engine.selection;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Keeps the k best scored subsets in a heap whose head is the worst retained subset.
+ */
+class TopAttributeSubsets {
+
+    private final int capacity;
+    private final PriorityQueue<ScoredAttributeSubset> subsets;
+
+    TopAttributeSubsets(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Number of retained subsets must be positive but was " + capacity);
+        }
+        this.capacity = capacity;
+        this.subsets = new PriorityQueue<>(capacity, (first, second) ->
+                first.isBetterThan(second) ? 1 : second.isBetterThan(first) ? -1 : 0);
+    }
+
+    void offer(ScoredAttributeSubset subset) {
+        if (subsets.size() < capacity) {
+            subsets.add(subset);
+        } else if (subset.isBetterThan(subsets.peek())) {
+            subsets.poll();
+            subsets.add(subset);
+        }
+    }
+
+    void merge(TopAttributeSubsets other) {
+        other.subsets.forEach(this::offer);
+    }
+
+    boolean isEmpty() {
+        return subsets.isEmpty();
+    }
+
+    List<ScoredAttributeSubset> toList() {
+        List<ScoredAttributeSubset> bestSubsets = new ArrayList<>(subsets);
+        bestSubsets.sort((first, second) -> first.isBetterThan(second) ? -1 : second.isBetterThan(first) ? 1 : 0);
+        return bestSubsets;
+    }
+}
@@ -0,0 +1,122 @@
+package thesis.engine.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+public class AttributeStatistics {
+
+    private final String attributeName;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private double sum;
+    private long count;
+    private long missingCount;
+
+    AttributeStatistics(String attributeName) {
+        this.attributeName = attributeName;
+    }
+
+    AttributeStatistics copy() {
+        AttributeStatistics copy = new AttributeStatistics(attributeName);
+        copy.min = min;
+        copy.max = max;
+        copy.sum = sum;
+        copy.count = count;
+        copy.missingCount = missingCount;
+        return copy;
+    }
+
+    void write(DataOutput output) throws IOException {
+        output.writeUTF(attributeName);
+        output.writeDouble(min);
+        output.writeDouble(max);
+        output.writeDouble(sum);
+        output.writeLong(count);
+        output.writeLong(missingCount);
+    }
+
+    static AttributeStatistics read(DataInput input) throws IOException {
+        AttributeStatistics statistics = new AttributeStatistics(input.readUTF());
+        statistics.min = input.readDouble();
+        statistics.max = input.readDouble();
+        statistics.sum = input.readDouble();
+        statistics.count = input.readLong();
+        statistics.missingCount = input.readLong();
+        return statistics;
+    }
+
+    public String getAttributeName() {
+        return attributeName;
+    }
+
+    public double getMin() {
+        if (count == 0) {
+            throw new RuntimeException("No min value could be found for attribute " + attributeName);
+        }
+        return min;
+    }
+
+    public double getMax() {
+        if (count == 0) {
+            throw new RuntimeException("No max value could be found for attribute " + attributeName);
+        }
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? Double.NaN : sum / count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMissingCount() {
+        return missingCount;
+    }
+
+    public boolean hasValues() {
+        return count > 0;
+    }
+
+    void accumulate(double value) {
+        if (Double.isNaN(value)) {
+            missingCount++;
+            return;
+        }
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        sum += value;
+        count++;
+    }
+
+    /**
+     * Accumulates a value that occurs repetitions times, e.g. the default value of a sparse column.
+     */
+    void accumulate(double value, long repetitions) {
+        if (repetitions == 0) {
+            return;
+        }
+        if (Double.isNaN(value)) {
+            missingCount += repetitions;
+            return;
+        }
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+        sum += value * repetitions;
+        count += repetitions;
+    }
+}
@@ -0,0 +1,133 @@
+package thesis.engine.statistics;
+
+import thesis.engine.column.ColumnStore;
+import thesis.engine.column.SparseColumn;
+import weka.core.Attribute;
+import weka.core.Instance;
+import weka.core.Instances;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+public class DataSetStatistics {
+
+    private final AttributeStatistics[] attributeStatistics;
+    private final Map<String, AttributeStatistics> statisticsByName = new HashMap<>();
+
+    private DataSetStatistics(Instances structure) {
+        this.attributeStatistics = new AttributeStatistics[structure.numAttributes()];
+        for (int i = 0; i < attributeStatistics.length; i++) {
+            attributeStatistics[i] = new AttributeStatistics(structure.attribute(i).name());
+        }
+        indexByName();
+    }
+
+    private DataSetStatistics(AttributeStatistics[] attributeStatistics) {
+        this.attributeStatistics = attributeStatistics;
+        indexByName();
+    }
+
+    private void indexByName() {
+        for (AttributeStatistics statistics : attributeStatistics) {
+            statisticsByName.put(statistics.getAttributeName(), statistics);
+        }
+    }
+
+    public static DataSetStatistics of(Instances dataSet) {
+        DataSetStatistics statistics = forStructure(dataSet);
+        statistics.accumulate(dataSet);
+        return statistics;
+    }
+
+    public static DataSetStatistics forStructure(Instances structure) {
+        return new DataSetStatistics(structure);
+    }
+
+    public static DataSetStatistics of(ColumnStore columns) {
+        DataSetStatistics statistics = new DataSetStatistics(columns.getHeader());
+        for (int column = 0; column < columns.numColumns(); column++) {
+            AttributeStatistics attributeStatistics = statistics.attributeStatistics[column];
+            SparseColumn sparseColumn = columns.sparseColumn(column);
+            if (sparseColumn != null) {
+                attributeStatistics.accumulate(sparseColumn.getDefaultValue(), sparseColumn.numDefaults());
+                for (double value : sparseColumn.values()) {
+                    attributeStatistics.accumulate(value);
+                }
+                continue;
+            }
+            for (double value : columns.column(column)) {
+                attributeStatistics.accumulate(value);
+            }
+        }
+        return statistics;
+    }
+
+    public void accumulate(Instances chunk) {
+        for (int i = 0; i < chunk.numInstances(); i++) {
+            accumulate(chunk.instance(i));
+        }
+    }
+
+    void accumulate(Instance instance) {
+        for (int i = 0; i < attributeStatistics.length; i++) {
+            attributeStatistics[i].accumulate(instance.value(i));
+        }
+    }
+
+    public DataSetStatistics copy() {
+        AttributeStatistics[] copies = new AttributeStatistics[attributeStatistics.length];
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = attributeStatistics[i].copy();
+        }
+        return new DataSetStatistics(copies);
+    }
+
+    /**
+     * Returns whether the statistics were collected for a data set with the attribute names of the passed structure.
+     */
+    public boolean matches(Instances structure) {
+        if (structure.numAttributes() != attributeStatistics.length) {
+            return false;
+        }
+        for (int i = 0; i < attributeStatistics.length; i++) {
+            if (!structure.attribute(i).name().equals(attributeStatistics[i].getAttributeName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void write(DataOutput output) throws IOException {
+        output.writeInt(attributeStatistics.length);
+        for (AttributeStatistics statistics : attributeStatistics) {
+            statistics.write(output);
+        }
+    }
+
+    public static DataSetStatistics read(DataInput input) throws IOException {
+        AttributeStatistics[] attributeStatistics = new AttributeStatistics[input.readInt()];
+        for (int i = 0; i < attributeStatistics.length; i++) {
+            attributeStatistics[i] = AttributeStatistics.read(input);
+        }
+        return new DataSetStatistics(attributeStatistics);
+    }
+
+    public int numAttributes() {
+        return attributeStatistics.length;
+    }
+
+    public AttributeStatistics get(int attributeIndex) {
+        return attributeStatistics[attributeIndex];
+    }
+
+    public AttributeStatistics get(Attribute attribute) {
+        AttributeStatistics statistics = statisticsByName.get(attribute.name());
+        if (statistics == null) {
+            throw new RuntimeException("No statistics available for attribute " + attribute.name());
+        }
+        return statistics;
+    }
+}
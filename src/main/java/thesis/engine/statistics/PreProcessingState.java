@@ -0,0 +1,107 @@
+package thesis.engine.statistics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * What a delta run of the preprocessing needs to know about the previous runs: how many source rows were
+ * processed already, the byte offset of the first unprocessed row in the input file, the length of the output
+ * file written, the statistics of the source attributes over the processed rows and the counts of the derived
+ * class values in the output.
+ */
+public class PreProcessingState {
+
+    private static final int MAGIC = 0x50505354;
+    private static final int VERSION = 2;
+
+    private final long numRows;
+    private final long inputOffset;
+    private final long outputLength;
+    private final DataSetStatistics statistics;
+    private final long[] classCounts;
+
+    public PreProcessingState(long numRows, long inputOffset, long outputLength, DataSetStatistics statistics,
+                              long[] classCounts) {
+        this.numRows = numRows;
+        this.inputOffset = inputOffset;
+        this.outputLength = outputLength;
+        this.statistics = statistics;
+        this.classCounts = classCounts;
+    }
+
+    public long getNumRows() {
+        return numRows;
+    }
+
+    public long getInputOffset() {
+        return inputOffset;
+    }
+
+    public long getOutputLength() {
+        return outputLength;
+    }
+
+    public DataSetStatistics getStatistics() {
+        return statistics;
+    }
+
+    public long[] getClassCounts() {
+        return Arrays.copyOf(classCounts, classCounts.length);
+    }
+
+    /**
+     * Writes the state to a temporary file first and moves it into place, so the file always holds either the
+     * previous or this state.
+     */
+    public void write(String filename) {
+        String temporaryFilename = filename + ".tmp";
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporaryFilename)))) {
+            output.writeInt(MAGIC);
+            output.writeInt(VERSION);
+            output.writeLong(numRows);
+            output.writeLong(inputOffset);
+            output.writeLong(outputLength);
+            statistics.write(output);
+            output.writeInt(classCounts.length);
+            for (long classCount : classCounts) {
+                output.writeLong(classCount);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to write preprocessing state " + filename, e);
+        }
+        try {
+            Files.move(Paths.get(temporaryFilename), Paths.get(filename),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to write preprocessing state " + filename, e);
+        }
+    }
+
+    public static PreProcessingState read(String filename) {
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(filename)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION) {
+                throw new IllegalArgumentException("File " + filename + " is not a preprocessing state of version " + VERSION);
+            }
+            long numRows = input.readLong();
+            long inputOffset = input.readLong();
+            long outputLength = input.readLong();
+            DataSetStatistics statistics = DataSetStatistics.read(input);
+            long[] classCounts = new long[input.readInt()];
+            for (int i = 0; i < classCounts.length; i++) {
+                classCounts[i] = input.readLong();
+            }
+            return new PreProcessingState(numRows, inputOffset, outputLength, statistics, classCounts);
+        } catch (IOException e) {
+            throw new RuntimeException("An error occurred when trying to read preprocessing state " + filename, e);
+        }
+    }
+}
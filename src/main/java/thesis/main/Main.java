@@ -2,25 +2,55 @@ package thesis.main;
 
 import thesis.engine.FileProcessingEngine;
 import thesis.engine.PreProcessingEngine;
+import thesis.engine.column.ColumnSnapshot;
+import thesis.engine.metrics.RecordingPreProcessingMetrics;
+import thesis.engine.statistics.PreProcessingState;
 import weka.core.Instances;
 
+import java.util.Arrays;
 import java.util.Date;
 
 public class Main {
 
+    private static final String INPUT_FILENAME = "data/ML_Data_original.arff";
+    private static final String[] UNNEEDED_ATTRIBUTE_NAMES =
+            new String[] {"submit_date", "recommendation_score", "user_id", "tracker_id", "_id", "email", "created_at"};
+    private static final String[] REPLACEABLE_ATTRIBUTE_NAMES =
+            new String[] {"gsm_rssi", "pos_uncertainty", "no_cell_locates", "no_of_sat", "days_in_use",
+                          "cmd_success_rate", "cmd_terminated_rate", "cmd_cancelled_rate", "cmd_delay_to_confirmed",
+                          "cmd_delay_to_pos_any", "cmd_delay_to_pos_new"};
+
     public static void main(String[] args) {
-        Instances dataSet = FileProcessingEngine.readDataSetFromFile("data/ML_Data_original.arff");
+        if (Arrays.asList(args).contains("--delta")) {
+            preProcessDelta();
+            return;
+        }
+
+        Instances dataSet = FileProcessingEngine.readDataSetFromFile(INPUT_FILENAME);
         System.out.println("Data loaded from file successfully");
 
         PreProcessingEngine preProcessingEngine = new PreProcessingEngine(dataSet);
-        preProcessingEngine.preProcess("rating",
-                new String[] {"submit_date", "recommendation_score", "user_id", "tracker_id", "_id", "email", "created_at"},
-                new String[] {"gsm_rssi", "pos_uncertainty", "no_cell_locates", "no_of_sat", "days_in_use",
-                              "cmd_success_rate", "cmd_terminated_rate", "cmd_cancelled_rate", "cmd_delay_to_confirmed",
-                              "cmd_delay_to_pos_any", "cmd_delay_to_pos_new"}, 0.0, 1.0);
+        RecordingPreProcessingMetrics metrics = new RecordingPreProcessingMetrics();
+        preProcessingEngine.setMetrics(metrics);
+        preProcessingEngine.preProcess(UNNEEDED_ATTRIBUTE_NAMES, REPLACEABLE_ATTRIBUTE_NAMES, 0.0, 1.0);
         System.out.println("Data preprocessed successfully");
 
-        FileProcessingEngine.writeDataSetToFile(preProcessingEngine.getDataSet(), "data/ML_Data_preprocessed_" + new Date().toString() + ".arff");
+        String outputFilename = "data/ML_Data_preprocessed_" + new Date().toString();
+        FileProcessingEngine.writeDataSetToFile(preProcessingEngine.getDataSet(), outputFilename + ".arff");
+        FileProcessingEngine.writeDataSetToFile(preProcessingEngine.getDataSet(), outputFilename + ColumnSnapshot.FILE_EXTENSION);
         System.out.println("Data written to file successfully");
+
+        preProcessingEngine.getModel().write(outputFilename + ".model");
+        System.out.println("Preprocessing model written to file successfully");
+
+        metrics.writeJson(outputFilename + ".metrics.json");
+        System.out.println("Preprocessing metrics written to file successfully");
+    }
+
+    // Only processes the rows appended since the last delta run, balancing is not applied
+    private static void preProcessDelta() {
+        PreProcessingState state = PreProcessingEngine.preProcessDelta(INPUT_FILENAME, "data/ML_Data_preprocessed.arff",
+                "data/ML_Data_preprocessed.state", 10000, UNNEEDED_ATTRIBUTE_NAMES, REPLACEABLE_ATTRIBUTE_NAMES, 0.0, 1.0);
+        System.out.println("Data preprocessed incrementally, " + state.getNumRows() + " rows processed in total");
     }
 }
@@ -3,9 +3,15 @@ package thesis.engine;
 import org.junit.Assert;
 import org.junit.Test;
 import thesis.engine.selection.AttributeSelectionStrategy;
+import thesis.engine.selection.BestFirstSelectionStrategy;
 import thesis.engine.selection.CorrelationBasedSelectionStrategy;
+import thesis.engine.selection.GreedyForwardSelectionStrategy;
+import thesis.engine.selection.SelectionResult;
+import weka.core.Instances;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -35,4 +41,51 @@ public class AttributeSelectionEngineTests {
                         .anyMatch(attribute -> attribute.name().equalsIgnoreCase("gsm_rssi") ||
                                   attribute.name().equalsIgnoreCase("pos_uncertainty")));
     }
+
+    @Test
+    public void testCompareStrategies() {
+        Instances dataSet = attributeSelectionEngine.getDataSet();
+        dataSet.setClass(dataSet.attribute("rating"));
+        CorrelationBasedSelectionStrategy randomStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 4, 50);
+        randomStrategy.setSeed(1);
+        List<AttributeSelectionStrategy> strategies = Arrays.asList(randomStrategy,
+                new GreedyForwardSelectionStrategy(dataSet, 2, 4), new BestFirstSelectionStrategy(dataSet, 2, 4));
+
+        List<SelectionResult> results = attributeSelectionEngine.compareStrategies(strategies, 3);
+
+        Assert.assertEquals(3, results.size());
+        for (int i = 1; i < results.size(); i++) {
+            Assert.assertFalse(results.get(i).isBetterThan(results.get(i - 1)));
+        }
+        CorrelationBasedSelectionStrategy separateStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 4, 50);
+        separateStrategy.setSeed(1);
+        SelectionResult randomResult = results.stream().filter(result -> result.getStrategy() == randomStrategy).findFirst().get();
+        Assert.assertEquals(separateStrategy.selectAttributes().getMerit(), randomResult.getMerit(), 0.0);
+    }
+
+    @Test
+    public void testFilterUnsuitableAttributesOfResult() {
+        Instances dataSet = attributeSelectionEngine.getDataSet();
+        dataSet.setClass(dataSet.attribute("rating"));
+        SelectionResult result = new GreedyForwardSelectionStrategy(dataSet, 2, 4).selectAttributes();
+
+        attributeSelectionEngine.filterUnsuitableAttributes(result);
+
+        Assert.assertEquals(dataSet.numAttributes() - result.getAttributesToRemove().length,
+                attributeSelectionEngine.getDataSet().numAttributes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompareStrategiesOfOtherDataSet() {
+        Instances otherDataSet = new Instances(attributeSelectionEngine.getDataSet(), 0);
+        attributeSelectionEngine.compareStrategies(
+                Collections.singletonList(new GreedyForwardSelectionStrategy(otherDataSet, 1, 2)), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCompareStrategiesOfCopiedDataSet() {
+        Instances copiedDataSet = new Instances(attributeSelectionEngine.getDataSet());
+        attributeSelectionEngine.compareStrategies(
+                Collections.singletonList(new GreedyForwardSelectionStrategy(copiedDataSet, 1, 2)), 1);
+    }
 }
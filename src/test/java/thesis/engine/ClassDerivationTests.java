@@ -0,0 +1,74 @@
+package thesis.engine;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Attribute;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class ClassDerivationTests {
+
+    @Test
+    public void testSatisfactionBins() {
+        ClassDerivation satisfaction = ClassDerivation.satisfaction("satisfaction");
+        double[] ratings = {1, 4, 5, 6, 7, 10};
+        double[] recommendationScores = {1, 5.9, 5, 7, 6, 10};
+        double[] classValues = new double[ratings.length];
+
+        satisfaction.derive(new double[][] {ratings, recommendationScores}, classValues, 0, ratings.length);
+
+        Assert.assertArrayEquals(new double[] {0, 0, 1, 2, 2, 2}, classValues, 0.0);
+        Assert.assertEquals(Arrays.asList("unsatisfied", "neutral", "satisfied"), satisfaction.getLabels());
+    }
+
+    @Test
+    public void testCustomDerivation() {
+        ClassDerivation derivation = new ClassDerivation("signal", new String[] {"gsm_rssi", "no_of_sat"},
+                ClassDerivation.Combination.MAX, new double[] {0, 10}, Arrays.asList("weak", "fair", "strong"));
+        double[][] sourceColumns = {{-5, 3, 12, -1}, {-2, 9, 1, 10}};
+        double[] classValues = new double[4];
+
+        derivation.derive(sourceColumns, classValues, 1, 4);
+
+        Assert.assertArrayEquals(new double[] {0, 1, 2, 2}, classValues, 0.0);
+        Attribute attribute = derivation.createAttribute();
+        Assert.assertEquals("signal", attribute.name());
+        Assert.assertEquals("strong", attribute.value(2));
+    }
+
+    @Test
+    public void testRecordMatchesColumns() {
+        ClassDerivation derivation = new ClassDerivation("total", new String[] {"a", "b", "c"},
+                ClassDerivation.Combination.SUM, new double[] {1.5}, Arrays.asList("low", "high"));
+        double[][] sourceColumns = {{0.5, 1, 0.25}, {0.5, 0.25, 0.25}, {0.5, 0.25, 1}};
+        double[] classValues = new double[3];
+        derivation.derive(sourceColumns, classValues, 0, 3);
+
+        for (int row = 0; row < classValues.length; row++) {
+            double[] record = {42, sourceColumns[2][row], sourceColumns[0][row], sourceColumns[1][row]};
+            Assert.assertEquals(classValues[row], derivation.deriveClassValue(record, new int[] {2, 3, 1}), 0.0);
+        }
+    }
+
+    @Test
+    public void testMissingSourceValueGivesMissingClassValue() {
+        double[] classValues = new double[1];
+
+        ClassDerivation.satisfaction("satisfaction").derive(new double[][] {{Double.NaN}, {7}}, classValues, 0, 1);
+
+        Assert.assertTrue(Double.isNaN(classValues[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThresholdsHaveToAscend() {
+        new ClassDerivation("class", new String[] {"rating"}, ClassDerivation.Combination.MEAN,
+                new double[] {6.5, 5.0}, Arrays.asList("low", "mid", "high"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEveryBinNeedsLabel() {
+        new ClassDerivation("class", new String[] {"rating"}, ClassDerivation.Combination.MEAN,
+                new double[] {5.0}, Collections.singletonList("low"));
+    }
+}
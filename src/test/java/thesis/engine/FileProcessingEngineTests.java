@@ -2,6 +2,13 @@ package thesis.engine;
 
 import org.junit.Assert;
 import org.junit.Test;
+import thesis.engine.column.ColumnSnapshot;
+import weka.core.Instances;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 public class FileProcessingEngineTests {
 
@@ -12,4 +19,60 @@ public class FileProcessingEngineTests {
         Assert.assertEquals(EXPECTED_NUM_INSTANCES,
                 FileProcessingEngine.readDataSetFromFile("data/test/test.arff").numInstances());
     }
+
+    @Test
+    public void testReadDataSetFromFileInChunks() {
+        List<Integer> chunkSizes = new ArrayList<>();
+
+        FileProcessingEngine.readDataSetFromFileInChunks("data/test/test.arff", 2,
+                chunk -> chunkSizes.add(chunk.numInstances()));
+
+        Assert.assertEquals(2, chunkSizes.size());
+        Assert.assertEquals(2, (int) chunkSizes.get(0));
+        Assert.assertEquals(1, (int) chunkSizes.get(1));
+    }
+
+    @Test
+    public void testReadDataSetFromFileBetweenOffsets() {
+        String filename = "data/test/test.arff";
+        Instances dataSet = FileProcessingEngine.readDataSetFromFile(filename);
+        long dataOffset = FileProcessingEngine.dataOffset(filename);
+        List<Instances> chunks = new ArrayList<>();
+
+        FileProcessingEngine.readDataSetFromFileInChunks(filename, FileProcessingEngine.readStructureFromFile(filename),
+                dataOffset, new File(filename).length(), 2, chunks::add);
+
+        Assert.assertEquals(2, chunks.size());
+        Assert.assertEquals(1, chunks.get(1).numInstances());
+        Assert.assertEquals(dataSet.instance(2).value(1), chunks.get(1).instance(0).value(1), 0.0);
+        FileProcessingEngine.readDataSetFromFileInChunks(filename, dataSet, dataOffset, dataOffset, 2,
+                chunk -> Assert.fail());
+    }
+
+    @Test
+    public void testWriteDataSetIncrementally() throws IOException {
+        File file = File.createTempFile("incremental", ".arff");
+        file.deleteOnExit();
+
+        Instances structure = FileProcessingEngine.readStructureFromFile("data/test/test.arff");
+        try (IncrementalDataSetWriter writer = new IncrementalDataSetWriter(file.getPath(), structure)) {
+            FileProcessingEngine.readDataSetFromFileInChunks("data/test/test.arff", 2, writer::write);
+        }
+
+        Assert.assertEquals(EXPECTED_NUM_INSTANCES,
+                FileProcessingEngine.readDataSetFromFile(file.getPath()).numInstances());
+    }
+
+    @Test
+    public void testWriteAndReadColumnSnapshot() throws IOException {
+        File file = File.createTempFile("snapshot", ColumnSnapshot.FILE_EXTENSION);
+        file.deleteOnExit();
+        Instances dataSet = FileProcessingEngine.readDataSetFromFile("data/test/test.arff");
+
+        FileProcessingEngine.writeDataSetToFile(dataSet, file.getPath());
+        Instances snapshot = FileProcessingEngine.readDataSetFromFile(file.getPath());
+
+        Assert.assertTrue(dataSet.equalHeaders(snapshot));
+        Assert.assertEquals(dataSet.toString(), snapshot.toString());
+    }
 }
@@ -3,14 +3,31 @@ package thesis.engine;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import thesis.engine.metrics.RecordingPreProcessingMetrics;
+import thesis.engine.metrics.StageMetrics;
+import thesis.engine.sampling.StratifiedReservoirSampler;
+import thesis.engine.statistics.PreProcessingState;
 import weka.core.Attribute;
+import weka.core.DenseInstance;
 import weka.core.Instance;
 import weka.core.Instances;
+import weka.core.Utils;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 public class PreProcessingEngineTests {
 
@@ -43,6 +60,17 @@ public class PreProcessingEngineTests {
         Assert.assertEquals("unsatisfied", getDataSet().instance(2).stringValue(classAttribute));
     }
 
+    @Test
+    public void testDeriveClassAttribute() {
+        preProcessingEngine.deriveClassAttribute(new ClassDerivation("rated", new String[] {"rating"},
+                ClassDerivation.Combination.MEAN, new double[] {getDataSet().instance(1).value(getDataSet().attribute("rating"))},
+                Arrays.asList("low", "high")));
+        Attribute classAttribute = getDataSet().attribute("rated");
+
+        Assert.assertEquals(Arrays.asList("low", "high"), Collections.list(classAttribute.enumerateValues()));
+        Assert.assertEquals("high", getDataSet().instance(1).stringValue(classAttribute));
+    }
+
     @Test
     public void testFilterUnneededAttributes() {
         int numAttributesBeforeFiltering = getDataSet().numAttributes();
@@ -102,10 +130,304 @@ public class PreProcessingEngineTests {
 
     @Test
     public void testBalanceDataSet() {
-        preProcessingEngine.addClassAttributeToDataSet(getDataSet().attribute("rating"));
+        preProcessingEngine.computeNewClassAttribute("satisfaction");
+        preProcessingEngine.addClassAttributeToDataSet(getDataSet().attribute("satisfaction"));
+        preProcessingEngine.balanceDataSet();
+
+        Assert.assertEquals(1, numberOfInstancesWithClassValue(0));
+        Assert.assertEquals(0, numberOfInstancesWithClassValue(1));
+        Assert.assertEquals(1, numberOfInstancesWithClassValue(2));
+    }
+
+    @Test
+    public void testOversampleDataSet() {
+        preProcessingEngine.computeNewClassAttribute("satisfaction");
+        preProcessingEngine.addClassAttributeToDataSet(getDataSet().attribute("satisfaction"));
+        preProcessingEngine.setBalancingMode(StratifiedReservoirSampler.Mode.OVERSAMPLE);
         preProcessingEngine.balanceDataSet();
 
-        Assert.assertEquals(numberOfInstancesWithClassValue(1), numberOfInstancesWithClassValue(0));
+        Assert.assertEquals(2, numberOfInstancesWithClassValue(0));
+        Assert.assertEquals(2, numberOfInstancesWithClassValue(2));
+    }
+
+    @Test
+    public void testPreProcessIncrementally() throws IOException {
+        final double minValue = 0.0;
+        final double maxValue = 1.0;
+        File outputFile = File.createTempFile("preprocessed", ".arff");
+        outputFile.deleteOnExit();
+
+        PreProcessingEngine.preProcessIncrementally(FILENAME, outputFile.getPath(), 2,
+                new String[] {"submit_date", "created_at"}, new String[] {"gsm_rssi"}, minValue, maxValue);
+        Instances processedDataSet = FileProcessingEngine.readDataSetFromFile(outputFile.getPath());
+        processedDataSet.setClassIndex(processedDataSet.numAttributes() - 1);
+
+        Assert.assertEquals(getDataSet().numInstances(), processedDataSet.numInstances());
+        Assert.assertNull(processedDataSet.attribute("submit_date"));
+        Assert.assertFalse(Collections.list(processedDataSet.enumerateInstances())
+                .stream()
+                .anyMatch(instance -> instance.isMissing(processedDataSet.attribute("gsm_rssi"))));
+        Assert.assertFalse(hasDataSetAttrValuesOutsideRange(
+                processedDataSet,
+                attribute -> attribute.index() != processedDataSet.classIndex(),
+                value -> value < minValue || value > maxValue));
+    }
+
+    @Test
+    public void testPreProcessIncrementallyWithCustomClassDerivation() throws IOException {
+        File outputFile = File.createTempFile("preprocessed", ".arff");
+        outputFile.deleteOnExit();
+
+        PreProcessingEngine.preProcessIncrementally(FILENAME, outputFile.getPath(), 2, createRatedDerivation(),
+                new String[] {"submit_date", "created_at"}, new String[] {"gsm_rssi"}, 0.0, 1.0);
+
+        Instances processedDataSet = FileProcessingEngine.readDataSetFromFile(outputFile.getPath());
+        Attribute classAttribute = processedDataSet.attribute(processedDataSet.numAttributes() - 1);
+        Assert.assertEquals("rated", classAttribute.name());
+        Assert.assertNull(processedDataSet.attribute("satisfaction"));
+        Assert.assertArrayEquals(new double[] {1, 1, 0}, processedDataSet.attributeToDoubleArray(classAttribute.index()), 0.0);
+    }
+
+    @Test
+    public void testPreProcessDeltaWithCustomClassDerivation() throws IOException {
+        File directory = Files.createTempDirectory("delta").toFile();
+        String inputFilename = new File(directory, "input.arff").getPath();
+        String outputFilename = new File(directory, "output.arff").getPath();
+        String stateFilename = new File(directory, "output.state").getPath();
+        List<String> lines = Files.readAllLines(Paths.get(FILENAME));
+        String[] unneededAttributeNames = {"submit_date", "created_at"};
+        String[] replaceableAttributeNames = {"gsm_rssi"};
+
+        Files.write(Paths.get(inputFilename), lines.subList(0, lines.size() - 1));
+        PreProcessingEngine.preProcessDelta(inputFilename, outputFilename, stateFilename, 2, createRatedDerivation(),
+                unneededAttributeNames, replaceableAttributeNames, 0.0, 1.0);
+        Files.write(Paths.get(inputFilename), lines);
+        PreProcessingState state = PreProcessingEngine.preProcessDelta(inputFilename, outputFilename, stateFilename, 2,
+                createRatedDerivation(), unneededAttributeNames, replaceableAttributeNames, 0.0, 1.0);
+
+        Instances processedDataSet = FileProcessingEngine.readDataSetFromFile(outputFilename);
+        Attribute classAttribute = processedDataSet.attribute(processedDataSet.numAttributes() - 1);
+        Assert.assertEquals("rated", classAttribute.name());
+        Assert.assertArrayEquals(new double[] {1, 1, 0}, processedDataSet.attributeToDoubleArray(classAttribute.index()), 0.0);
+        Assert.assertArrayEquals(new long[] {1, 2}, state.getClassCounts());
+    }
+
+    @Test
+    public void testPreProcessReportsEveryStage() {
+        RecordingPreProcessingMetrics metrics = new RecordingPreProcessingMetrics();
+        preProcessingEngine.setMetrics(metrics);
+        preProcessingEngine.setSeed(1);
+
+        preProcessingEngine.preProcess(new String[] {"submit_date", "created_at"}, new String[] {"gsm_rssi"}, 0.0, 1.0);
+
+        Assert.assertEquals(Arrays.asList("computeStatistics", "fitModel", "preProcessRows", "balanceDataSet"),
+                metrics.getStageMetrics().stream().map(StageMetrics::getStageName).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testPreProcessDeltaMatchesFullPreProcessing() throws IOException {
+        File directory = Files.createTempDirectory("delta").toFile();
+        String inputFilename = new File(directory, "input.arff").getPath();
+        String outputFilename = new File(directory, "output.arff").getPath();
+        String stateFilename = new File(directory, "output.state").getPath();
+        String expectedFilename = new File(directory, "expected.arff").getPath();
+        List<String> lines = Files.readAllLines(Paths.get(FILENAME));
+
+        Files.write(Paths.get(inputFilename), lines.subList(0, lines.size() - 1));
+        preProcessDelta(inputFilename, outputFilename, stateFilename);
+        Files.write(Paths.get(inputFilename), lines);
+        PreProcessingState state = preProcessDelta(inputFilename, outputFilename, stateFilename);
+        PreProcessingEngine.preProcessIncrementally(inputFilename, expectedFilename, 2,
+                new String[] {"submit_date", "created_at"}, new String[] {"gsm_rssi"}, 0.0, 1.0);
+
+        Instances expectedDataSet = FileProcessingEngine.readDataSetFromFile(expectedFilename);
+        Instances processedDataSet = FileProcessingEngine.readDataSetFromFile(outputFilename);
+        Assert.assertEquals(3, state.getNumRows());
+        Assert.assertArrayEquals(new long[] {1, 0, 2}, state.getClassCounts());
+        Assert.assertEquals(expectedDataSet.numInstances(), processedDataSet.numInstances());
+        for (int row = 0; row < expectedDataSet.numInstances(); row++) {
+            Assert.assertArrayEquals(expectedDataSet.instance(row).toDoubleArray(), processedDataSet.instance(row).toDoubleArray(), 1e-5);
+        }
+    }
+
+    @Test
+    public void testPreProcessDeltaAppendsRowsWithinRange() throws IOException {
+        File directory = Files.createTempDirectory("delta").toFile();
+        String inputFilename = new File(directory, "input.arff").getPath();
+        String outputFilename = new File(directory, "output.arff").getPath();
+        String stateFilename = new File(directory, "output.state").getPath();
+        List<String> lines = new ArrayList<>(Files.readAllLines(Paths.get(FILENAME)));
+
+        Files.write(Paths.get(inputFilename), lines);
+        preProcessDelta(inputFilename, outputFilename, stateFilename);
+        byte[] previousOutput = Files.readAllBytes(Paths.get(outputFilename));
+        lines.add(lines.get(lines.size() - 1));
+        Files.write(Paths.get(inputFilename), lines);
+        PreProcessingState state = preProcessDelta(inputFilename, outputFilename, stateFilename);
+
+        byte[] output = Files.readAllBytes(Paths.get(outputFilename));
+        Assert.assertEquals(4, state.getNumRows());
+        Assert.assertEquals(4, FileProcessingEngine.readDataSetFromFile(outputFilename).numInstances());
+        Assert.assertArrayEquals(previousOutput, Arrays.copyOf(output, previousOutput.length));
+    }
+
+    @Test
+    public void testPreProcessDeltaKeepsImputedValuesOfPreviousRuns() throws IOException {
+        File directory = Files.createTempDirectory("delta").toFile();
+        String inputFilename = new File(directory, "input.arff").getPath();
+        String outputFilename = new File(directory, "output.arff").getPath();
+        String stateFilename = new File(directory, "output.state").getPath();
+        List<String> lines = Files.readAllLines(Paths.get(FILENAME));
+        List<String> header = lines.subList(0, lines.indexOf("@data") + 1);
+        List<String> rows = lines.subList(header.size(), lines.size());
+        String rowWithMissingValue = "'2017-01-04',3,6,?,20.0,2,0.5,4.0,'2016-04-01'";
+
+        List<String> input = new ArrayList<>(header);
+        input.addAll(Arrays.asList(rows.get(0), rows.get(2), rowWithMissingValue));
+        Files.write(Paths.get(inputFilename), input);
+        preProcessDelta(inputFilename, outputFilename, stateFilename);
+        input.addAll(Arrays.asList(rows.get(1), rowWithMissingValue));
+        Files.write(Paths.get(inputFilename), input);
+        preProcessDelta(inputFilename, outputFilename, stateFilename);
+
+        Instances processedDataSet = FileProcessingEngine.readDataSetFromFile(outputFilename);
+        Attribute gsmRssi = processedDataSet.attribute("gsm_rssi");
+        double min = -77.208078, max = -63.074409;
+        double previousMean = (-77.208078 - 69.717513) / 2;
+        double mean = (-77.208078 - 69.717513 - 63.074409) / 3;
+        Assert.assertEquals(5, processedDataSet.numInstances());
+        Assert.assertEquals((previousMean - min) / (max - min), processedDataSet.instance(2).value(gsmRssi), 1e-5);
+        Assert.assertEquals((mean - min) / (max - min), processedDataSet.instance(4).value(gsmRssi), 1e-5);
+    }
+
+    @Test
+    public void testPreProcessDeltaTruncatesPartialAppend() throws IOException {
+        File directory = Files.createTempDirectory("delta").toFile();
+        String inputFilename = new File(directory, "input.arff").getPath();
+        String outputFilename = new File(directory, "output.arff").getPath();
+        String stateFilename = new File(directory, "output.state").getPath();
+        List<String> lines = new ArrayList<>(Files.readAllLines(Paths.get(FILENAME)));
+
+        Files.write(Paths.get(inputFilename), lines);
+        preProcessDelta(inputFilename, outputFilename, stateFilename);
+        byte[] previousOutput = Files.readAllBytes(Paths.get(outputFilename));
+        Files.write(Paths.get(outputFilename), "0.5,0.25,".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        lines.add(lines.get(lines.size() - 1));
+        Files.write(Paths.get(inputFilename), lines);
+        preProcessDelta(inputFilename, outputFilename, stateFilename);
+
+        byte[] output = Files.readAllBytes(Paths.get(outputFilename));
+        Assert.assertEquals(4, FileProcessingEngine.readDataSetFromFile(outputFilename).numInstances());
+        Assert.assertArrayEquals(previousOutput, Arrays.copyOf(output, previousOutput.length));
+    }
+
+    @Test
+    public void testPreProcessDeltaDoesNotParseProcessedRows() throws IOException {
+        File directory = Files.createTempDirectory("delta").toFile();
+        String inputFilename = new File(directory, "input.arff").getPath();
+        String outputFilename = new File(directory, "output.arff").getPath();
+        String stateFilename = new File(directory, "output.state").getPath();
+        List<String> lines = new ArrayList<>(Files.readAllLines(Paths.get(FILENAME)));
+
+        Files.write(Paths.get(inputFilename), lines);
+        preProcessDelta(inputFilename, outputFilename, stateFilename);
+        // Keeps the byte offsets but makes the first row unparseable
+        int firstRow = lines.indexOf("@data") + 1;
+        lines.set(firstRow, lines.get(firstRow).replaceAll(".", "x"));
+        lines.add(lines.get(lines.size() - 1));
+        Files.write(Paths.get(inputFilename), lines);
+        PreProcessingState state = preProcessDelta(inputFilename, outputFilename, stateFilename);
+
+        Assert.assertEquals(4, state.getNumRows());
+        Assert.assertEquals(Files.size(Paths.get(inputFilename)), state.getInputOffset());
+        Assert.assertEquals(4, FileProcessingEngine.readDataSetFromFile(outputFilename).numInstances());
+    }
+
+    @Test
+    public void testSparsePreProcessingMatchesDensePreProcessing() {
+        PreProcessingEngine sparseEngine = new PreProcessingEngine(createSparseDataSet(10_000));
+        sparseEngine.setSeed(7);
+        PreProcessingEngine denseEngine = new PreProcessingEngine(createSparseDataSet(10_000));
+        denseEngine.setSeed(7);
+        denseEngine.setSparseThreshold(2);
+
+        String[] unneededAttributeNames = {"submit_date"};
+        String[] replaceableAttributeNames = {"gsm_rssi", "no_cell_locates"};
+        sparseEngine.preProcess(unneededAttributeNames, replaceableAttributeNames, 0.0, 1.0);
+        denseEngine.preProcess(unneededAttributeNames, replaceableAttributeNames, 0.0, 1.0);
+
+        Assert.assertEquals(2, sparseEngine.getColumns().numSparseColumns());
+        Instances sparseDataSet = sparseEngine.getDataSet();
+        Instances denseDataSet = denseEngine.getDataSet();
+        Assert.assertTrue(denseDataSet.equalHeaders(sparseDataSet));
+        Assert.assertEquals(denseDataSet.numInstances(), sparseDataSet.numInstances());
+        for (int row = 0; row < denseDataSet.numInstances(); row++) {
+            double[] denseValues = denseDataSet.instance(row).toDoubleArray();
+            double[] sparseValues = sparseDataSet.instance(row).toDoubleArray();
+            for (int column = 0; column < denseValues.length; column++) {
+                Assert.assertEquals(Double.doubleToLongBits(denseValues[column]), Double.doubleToLongBits(sparseValues[column]));
+            }
+        }
+    }
+
+    @Test
+    public void testMostlyZeroColumnsTakeSparsePathWithSourceClass() {
+        Instances sourceDataSet = createSparseDataSet(10_000);
+        for (Instance instance : sourceDataSet) {
+            if (instance.isMissing(3)) {
+                instance.setValue(3, -75);
+            }
+        }
+        sourceDataSet.setClassIndex(1);
+        PreProcessingEngine sparseEngine = new PreProcessingEngine(new Instances(sourceDataSet));
+        sparseEngine.setSeed(7);
+        PreProcessingEngine denseEngine = new PreProcessingEngine(new Instances(sourceDataSet));
+        denseEngine.setSeed(7);
+        denseEngine.setSparseThreshold(2);
+
+        sparseEngine.preProcess(new String[] {"submit_date"}, new String[] {"gsm_rssi"}, 0.0, 1.0);
+        denseEngine.preProcess(new String[] {"submit_date"}, new String[] {"gsm_rssi"}, 0.0, 1.0);
+
+        Assert.assertEquals(1, sparseEngine.getColumns().numSparseColumns());
+        Instances sparseDataSet = sparseEngine.getDataSet();
+        Instances denseDataSet = denseEngine.getDataSet();
+        Assert.assertTrue(denseDataSet.equalHeaders(sparseDataSet));
+        Assert.assertEquals(denseDataSet.numInstances(), sparseDataSet.numInstances());
+        for (int row = 0; row < denseDataSet.numInstances(); row++) {
+            double[] denseValues = denseDataSet.instance(row).toDoubleArray();
+            double[] sparseValues = sparseDataSet.instance(row).toDoubleArray();
+            for (int column = 0; column < denseValues.length; column++) {
+                Assert.assertEquals(Double.doubleToLongBits(denseValues[column]), Double.doubleToLongBits(sparseValues[column]));
+            }
+        }
+    }
+
+    private static Instances createSparseDataSet(int numRows) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("submit_date"));
+        attributes.add(new Attribute("rating"));
+        attributes.add(new Attribute("recommendation_score"));
+        attributes.add(new Attribute("gsm_rssi"));
+        attributes.add(new Attribute("no_cell_locates"));
+        Instances dataSet = new Instances("test", attributes, numRows);
+        Random random = new Random(42);
+        for (int row = 0; row < numRows; row++) {
+            double gsmRssi = random.nextDouble() < 0.9 ? Utils.missingValue() : -100 + random.nextDouble() * 50;
+            double noCellLocates = random.nextDouble() < 0.8 ? 0 : random.nextInt(10);
+            dataSet.add(new DenseInstance(1.0, new double[] {row, 1 + random.nextInt(5), random.nextInt(11), gsmRssi, noCellLocates}));
+        }
+        return dataSet;
+    }
+
+    // Ratings from 3 on are high
+    private static ClassDerivation createRatedDerivation() {
+        return new ClassDerivation("rated", new String[] {"rating"}, ClassDerivation.Combination.MIN,
+                new double[] {3}, Arrays.asList("low", "high"));
+    }
+
+    private static PreProcessingState preProcessDelta(String inputFilename, String outputFilename, String stateFilename) {
+        return PreProcessingEngine.preProcessDelta(inputFilename, outputFilename, stateFilename, 2,
+                new String[] {"submit_date", "created_at"}, new String[] {"gsm_rssi"}, 0.0, 1.0);
     }
 
     private int numberOfInstancesWithClassValue(double classValue) {
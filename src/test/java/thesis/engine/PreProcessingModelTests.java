@@ -0,0 +1,161 @@
+package thesis.engine;
+
+import org.junit.Assert;
+import org.junit.Test;
+import thesis.engine.column.ColumnStore;
+import thesis.engine.statistics.DataSetStatistics;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+public class PreProcessingModelTests {
+
+    private final Instances dataSet = createDataSet(1000);
+    private final PreProcessingPipeline pipeline = PreProcessingPipeline.builder()
+            .deriveClassAttribute("satisfaction")
+            .removeAttributes("submit_date")
+            .replaceMissingValues("gsm_rssi")
+            .normalize(0.0, 1.0)
+            .build();
+
+    @Test
+    public void testTransformMatchesBatchRun() {
+        PreProcessingModel model = fit();
+        Instances expectedDataSet = pipeline.run(dataSet).toInstances();
+
+        Assert.assertTrue(expectedDataSet.equalHeaders(model.getOutputHeader()));
+        double[] output = new double[model.numOutputValues()];
+        for (int row = 0; row < dataSet.numInstances(); row++) {
+            model.transform(dataSet.instance(row).toDoubleArray(), output);
+            assertBitIdentical(expectedDataSet.instance(row).toDoubleArray(), output);
+        }
+    }
+
+    @Test
+    public void testTransformMicroBatch() {
+        PreProcessingModel model = fit();
+        Instances batch = new Instances(dataSet, 10, 5);
+        double[][] outputs = new double[5][model.numOutputValues()];
+
+        model.transform(batch, outputs);
+
+        double[] output = new double[model.numOutputValues()];
+        for (int row = 0; row < batch.numInstances(); row++) {
+            model.transform(batch.instance(row), output);
+            assertBitIdentical(output, outputs[row]);
+        }
+    }
+
+    @Test
+    public void testWithoutAttributesMatchesFilteredBatchRun() {
+        PreProcessingModel model = fit().withoutAttributes("rating", "no_cell_locates");
+        ColumnStore expectedColumns = pipeline.run(dataSet);
+        expectedColumns.removeColumns(new int[] {0, 3});
+        Instances expectedDataSet = expectedColumns.toInstances();
+
+        Assert.assertTrue(expectedDataSet.equalHeaders(model.getOutputHeader()));
+        Assert.assertEquals(expectedDataSet.classIndex(), model.getOutputHeader().classIndex());
+        double[] output = new double[model.numOutputValues()];
+        for (int row = 0; row < dataSet.numInstances(); row++) {
+            model.transform(dataSet.instance(row), output);
+            assertBitIdentical(expectedDataSet.instance(row).toDoubleArray(), output);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWithoutUnknownAttribute() {
+        fit().withoutAttributes("submit_date");
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        File file = File.createTempFile("preprocessing", ".model");
+        file.deleteOnExit();
+        PreProcessingModel model = fit().withoutAttributes("rating");
+
+        model.write(file.getPath());
+        PreProcessingModel readModel = PreProcessingModel.read(file.getPath());
+
+        Assert.assertTrue(readModel.matches(dataSet));
+        Assert.assertTrue(model.getOutputHeader().equalHeaders(readModel.getOutputHeader()));
+        double[] expectedOutput = new double[model.numOutputValues()];
+        double[] output = new double[readModel.numOutputValues()];
+        for (int row = 0; row < dataSet.numInstances(); row++) {
+            model.transform(dataSet.instance(row), expectedOutput);
+            readModel.transform(dataSet.instance(row), output);
+            assertBitIdentical(expectedOutput, output);
+        }
+    }
+
+    @Test
+    public void testWriteAndReadCustomClassDerivation() throws IOException {
+        File file = File.createTempFile("preprocessing", ".model");
+        file.deleteOnExit();
+        PreProcessingPipeline customPipeline = PreProcessingPipeline.builder()
+                .deriveClassAttribute(new ClassDerivation("rated", new String[] {"rating"}, ClassDerivation.Combination.MIN,
+                        new double[] {3}, Arrays.asList("low", "high")))
+                .build();
+        Instances expectedDataSet = customPipeline.run(dataSet).toInstances();
+
+        customPipeline.fit(dataSet, DataSetStatistics.of(dataSet)).write(file.getPath());
+        PreProcessingModel readModel = PreProcessingModel.read(file.getPath());
+
+        Assert.assertTrue(expectedDataSet.equalHeaders(readModel.getOutputHeader()));
+        double[] output = new double[readModel.numOutputValues()];
+        for (int row = 0; row < dataSet.numInstances(); row++) {
+            readModel.transform(dataSet.instance(row), output);
+            assertBitIdentical(expectedDataSet.instance(row).toDoubleArray(), output);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTransformRecordOfOtherLength() {
+        PreProcessingModel model = fit();
+        model.transform(new double[model.numSourceValues() - 1], new double[model.numOutputValues()]);
+    }
+
+    @Test
+    public void testPreProcessingEngineExportsModel() {
+        PreProcessingEngine preProcessingEngine = new PreProcessingEngine(new Instances(dataSet));
+        preProcessingEngine.setSeed(1);
+
+        preProcessingEngine.preProcess(new String[] {"submit_date"}, new String[] {"gsm_rssi"}, 0.0, 1.0);
+
+        Assert.assertTrue(preProcessingEngine.getModel().matches(dataSet));
+        Assert.assertTrue(preProcessingEngine.getModel().getOutputHeader().equalHeaders(preProcessingEngine.getDataSet()));
+    }
+
+    private PreProcessingModel fit() {
+        return pipeline.fit(dataSet, DataSetStatistics.of(dataSet));
+    }
+
+    private static Instances createDataSet(int numRows) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("submit_date"));
+        attributes.add(new Attribute("rating"));
+        attributes.add(new Attribute("recommendation_score"));
+        attributes.add(new Attribute("gsm_rssi"));
+        attributes.add(new Attribute("no_cell_locates"));
+        Instances dataSet = new Instances("test", attributes, numRows);
+        Random random = new Random(42);
+        for (int row = 0; row < numRows; row++) {
+            double gsmRssi = random.nextDouble() < 0.3 ? Utils.missingValue() : -100 + random.nextDouble() * 50;
+            double noCellLocates = random.nextDouble() < 0.1 ? Utils.missingValue() : random.nextInt(10);
+            dataSet.add(new DenseInstance(1.0, new double[] {row, 1 + random.nextInt(5), random.nextInt(11), gsmRssi, noCellLocates}));
+        }
+        return dataSet;
+    }
+
+    private static void assertBitIdentical(double[] expectedValues, double[] values) {
+        for (int column = 0; column < expectedValues.length; column++) {
+            Assert.assertEquals(Double.doubleToLongBits(expectedValues[column]), Double.doubleToLongBits(values[column]));
+        }
+    }
+}
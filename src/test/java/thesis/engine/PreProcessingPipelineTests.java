@@ -0,0 +1,122 @@
+package thesis.engine;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class PreProcessingPipelineTests {
+
+    private static final String FILENAME = "data/test/test.arff";
+    private static final String[] UNNEEDED_ATTRIBUTE_NAMES = new String[] {"submit_date", "created_at"};
+    private static final String[] REPLACEABLE_ATTRIBUTE_NAMES = new String[] {"gsm_rssi", "no_cell_locates"};
+
+    @Test
+    public void testRunMatchesSeparateStages() {
+        PreProcessingEngine preProcessingEngine = new PreProcessingEngine(FileProcessingEngine.readDataSetFromFile(FILENAME));
+        preProcessingEngine.computeNewClassAttribute("satisfaction");
+        preProcessingEngine.addClassAttributeToDataSet(preProcessingEngine.getDataSet().attribute("satisfaction"));
+        preProcessingEngine.filterUnneededAttributes(UNNEEDED_ATTRIBUTE_NAMES);
+        Instances filteredDataSet = preProcessingEngine.getDataSet();
+        Set<Attribute> replaceableAttributes = new HashSet<>();
+        for (String attributeName : REPLACEABLE_ATTRIBUTE_NAMES) {
+            replaceableAttributes.add(filteredDataSet.attribute(attributeName));
+        }
+        preProcessingEngine.replaceMissingAttributeValues(replaceableAttributes);
+        preProcessingEngine.normalizeAttributeValues(0.0, 1.0);
+        Instances expectedDataSet = preProcessingEngine.getDataSet();
+
+        Instances dataSet = PreProcessingPipeline.builder()
+                .deriveClassAttribute("satisfaction")
+                .removeAttributes(UNNEEDED_ATTRIBUTE_NAMES)
+                .replaceMissingValues(REPLACEABLE_ATTRIBUTE_NAMES)
+                .normalize(0.0, 1.0)
+                .build()
+                .run(FileProcessingEngine.readDataSetFromFile(FILENAME))
+                .toInstances();
+
+        Assert.assertTrue(expectedDataSet.equalHeaders(dataSet));
+        Assert.assertEquals(expectedDataSet.classIndex(), dataSet.classIndex());
+        for (int row = 0; row < expectedDataSet.numInstances(); row++) {
+            Assert.assertArrayEquals(expectedDataSet.instance(row).toDoubleArray(), dataSet.instance(row).toDoubleArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void testRunWithoutStagesKeepsDataSet() {
+        Instances source = FileProcessingEngine.readDataSetFromFile(FILENAME);
+
+        Instances dataSet = PreProcessingPipeline.builder().build().run(source).toInstances();
+
+        Assert.assertEquals(source.numAttributes(), dataSet.numAttributes());
+        Assert.assertEquals(Collections.list(source.enumerateInstances()).size(), dataSet.numInstances());
+        Assert.assertArrayEquals(source.firstInstance().toDoubleArray(), dataSet.firstInstance().toDoubleArray(), 0.0);
+    }
+
+    @Test
+    public void testParallelRunMatchesSerialRun() {
+        Instances source = createLargeDataSet(100_000);
+        PreProcessingPipeline.Builder builder = PreProcessingPipeline.builder()
+                .deriveClassAttribute("satisfaction")
+                .replaceMissingValues("gsm_rssi")
+                .normalize(0.0, 1.0);
+
+        Instances serialDataSet = builder.parallelism(1).build().run(source).toInstances();
+        Instances parallelDataSet = builder.parallelism(4).build().run(source).toInstances();
+
+        assertBitIdentical(serialDataSet, parallelDataSet);
+    }
+
+    @Test
+    public void testParallelStagesMatchSerialStages() {
+        Instances source = createLargeDataSet(100_000);
+
+        Instances serialDataSet = runStages(new Instances(source), 1);
+        Instances parallelDataSet = runStages(new Instances(source), 4);
+
+        assertBitIdentical(serialDataSet, parallelDataSet);
+    }
+
+    private static Instances runStages(Instances dataSet, int parallelism) {
+        PreProcessingEngine preProcessingEngine = new PreProcessingEngine(dataSet);
+        preProcessingEngine.setParallelism(parallelism);
+        preProcessingEngine.computeNewClassAttribute("satisfaction");
+        preProcessingEngine.addClassAttributeToDataSet(preProcessingEngine.getDataSet().attribute("satisfaction"));
+        preProcessingEngine.replaceMissingAttributeValues(Collections.singleton(preProcessingEngine.getDataSet().attribute("gsm_rssi")));
+        preProcessingEngine.normalizeAttributeValues(0.0, 1.0);
+        return preProcessingEngine.getDataSet();
+    }
+
+    private static Instances createLargeDataSet(int numRows) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("rating"));
+        attributes.add(new Attribute("recommendation_score"));
+        attributes.add(new Attribute("gsm_rssi"));
+        Instances dataSet = new Instances("test", attributes, numRows);
+        Random random = new Random(42);
+        for (int row = 0; row < numRows; row++) {
+            double gsmRssi = random.nextDouble() < 0.3 ? Utils.missingValue() : -100 + random.nextDouble() * 50;
+            dataSet.add(new DenseInstance(1.0, new double[] {1 + random.nextInt(5), random.nextInt(11), gsmRssi}));
+        }
+        return dataSet;
+    }
+
+    private static void assertBitIdentical(Instances expectedDataSet, Instances dataSet) {
+        Assert.assertEquals(expectedDataSet.numInstances(), dataSet.numInstances());
+        for (int row = 0; row < expectedDataSet.numInstances(); row++) {
+            double[] expectedValues = expectedDataSet.instance(row).toDoubleArray();
+            double[] values = dataSet.instance(row).toDoubleArray();
+            for (int column = 0; column < expectedValues.length; column++) {
+                Assert.assertEquals(Double.doubleToLongBits(expectedValues[column]), Double.doubleToLongBits(values[column]));
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package thesis.engine.column;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ColumnSnapshotTests {
+
+    private final Instances dataSet;
+
+    public ColumnSnapshotTests() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("gsm_rssi"));
+        attributes.add(new Attribute("email", (List<String>) null));
+        attributes.add(new Attribute("satisfaction", Arrays.asList("unsatisfied", "neutral", "satisfied")));
+        dataSet = new Instances("test", attributes, 100);
+        for (int row = 0; row < 100; row++) {
+            double email = row % 7 == 0 ? Utils.missingValue() : dataSet.attribute(1).addStringValue("user" + row % 5 + "@example.com");
+            double gsmRssi = row % 3 == 0 ? Utils.missingValue() : -60 - row * 0.25;
+            dataSet.add(new DenseInstance(row % 2 == 0 ? 1.0 : 0.5, new double[] {gsmRssi, email, row % 3}));
+        }
+        dataSet.setClassIndex(2);
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        File file = File.createTempFile("snapshot", ColumnSnapshot.FILE_EXTENSION);
+        file.deleteOnExit();
+        ColumnStore columns = ColumnStore.of(dataSet);
+
+        ColumnSnapshot.write(columns, file.getPath());
+        ColumnStore snapshot = ColumnSnapshot.read(file.getPath());
+
+        Assert.assertEquals(columns.numRows(), snapshot.numRows());
+        Assert.assertEquals(columns.classIndex(), snapshot.classIndex());
+        Assert.assertTrue(columns.getHeader().equalHeaders(snapshot.getHeader()));
+        for (int column = 0; column < columns.numColumns(); column++) {
+            Assert.assertEquals(columns.numMissing(column), snapshot.numMissing(column));
+            for (int row = 0; row < columns.numRows(); row++) {
+                Assert.assertEquals(columns.isMissing(column, row), snapshot.isMissing(column, row));
+                Assert.assertEquals(columns.value(column, row), snapshot.value(column, row), 0.0);
+            }
+        }
+        Assert.assertArrayEquals(columns.weights(), snapshot.weights(), 0.0);
+        Assert.assertEquals(dataSet.toString(), snapshot.toInstances().toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadRejectsOtherFiles() {
+        ColumnSnapshot.read("data/test/test.arff");
+    }
+}
@@ -0,0 +1,124 @@
+package thesis.engine.column;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+
+public class ColumnStoreTests {
+
+    private final Instances dataSet;
+
+    public ColumnStoreTests() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("gsm_rssi"));
+        attributes.add(new Attribute("no_cell_locates"));
+        attributes.add(new Attribute("rating"));
+        dataSet = new Instances("test", attributes, 3);
+        dataSet.add(new DenseInstance(1.0, new double[] {-80, Utils.missingValue(), 4}));
+        dataSet.add(new DenseInstance(1.0, new double[] {-60, 4, 5}));
+        dataSet.add(new DenseInstance(1.0, new double[] {-70, Utils.missingValue(), 1}));
+        dataSet.setClassIndex(2);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Instances roundTripped = ColumnStore.of(dataSet).toInstances();
+
+        Assert.assertEquals(dataSet.numInstances(), roundTripped.numInstances());
+        Assert.assertEquals(dataSet.classIndex(), roundTripped.classIndex());
+        for (int row = 0; row < dataSet.numInstances(); row++) {
+            Assert.assertArrayEquals(dataSet.instance(row).toDoubleArray(), roundTripped.instance(row).toDoubleArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void testMissingValues() {
+        ColumnStore columns = ColumnStore.of(dataSet);
+
+        Assert.assertTrue(columns.isMissing(1, 0));
+        Assert.assertFalse(columns.isMissing(1, 1));
+        Assert.assertEquals(2, columns.numMissing(1));
+
+        columns.setValue(1, 0, 2.0);
+        Assert.assertFalse(columns.isMissing(1, 0));
+        Assert.assertEquals(1, columns.numMissing(1));
+    }
+
+    @Test
+    public void testRemoveColumns() {
+        ColumnStore columns = ColumnStore.of(dataSet);
+
+        columns.removeColumns(new int[] {0, 1});
+
+        Assert.assertEquals(1, columns.numColumns());
+        Assert.assertEquals("rating", columns.attribute(0).name());
+        Assert.assertEquals(0, columns.classIndex());
+        Assert.assertEquals(3, dataSet.numAttributes());
+    }
+
+    @Test
+    public void testIndexOfFollowsSchemaChanges() {
+        ColumnStore columns = ColumnStore.of(dataSet);
+        Assert.assertEquals(1, columns.indexOf("NO_CELL_LOCATES"));
+
+        columns.removeColumns(new int[] {0});
+        columns.addColumn(new Attribute("satisfaction"), new double[] {1, 2, 3});
+
+        Assert.assertEquals(-1, columns.indexOf("gsm_rssi"));
+        Assert.assertEquals(0, columns.indexOf("no_cell_locates"));
+        Assert.assertEquals(2, columns.indexOf("Satisfaction"));
+    }
+
+    @Test
+    public void testSelectRows() {
+        ColumnStore columns = ColumnStore.of(dataSet);
+
+        columns.selectRows(new int[] {2, 0, 2});
+
+        Assert.assertEquals(3, columns.numRows());
+        Assert.assertArrayEquals(new double[] {-70, -80, -70}, columns.column(0), 0.0);
+        Assert.assertTrue(columns.isMissing(1, 0));
+        Assert.assertTrue(columns.isMissing(1, 1));
+        Assert.assertTrue(columns.isMissing(1, 2));
+    }
+
+    @Test
+    public void testCompressSparseColumns() {
+        ColumnStore columns = ColumnStore.of(dataSet);
+
+        Assert.assertEquals(1, columns.compressSparseColumns(0.6));
+
+        Assert.assertFalse(columns.isSparse(0));
+        Assert.assertTrue(columns.isSparse(1));
+        Assert.assertFalse(columns.isSparse(2));
+        Assert.assertTrue(columns.isMissing(1, 0));
+        Assert.assertEquals(4, columns.value(1, 1), 0.0);
+        Assert.assertEquals(2, columns.numMissing(1));
+        Instances roundTripped = columns.toInstances();
+        for (int row = 0; row < dataSet.numInstances(); row++) {
+            Assert.assertArrayEquals(dataSet.instance(row).toDoubleArray(), roundTripped.instance(row).toDoubleArray(), 0.0);
+        }
+    }
+
+    @Test
+    public void testSparseColumnFollowsRowAndColumnChanges() {
+        ColumnStore columns = ColumnStore.of(dataSet);
+        columns.compressSparseColumns(0.6);
+
+        columns.selectRows(new int[] {1, 1, 0});
+        Assert.assertTrue(columns.isSparse(1));
+        Assert.assertArrayEquals(new double[] {4, 4, Double.NaN}, columns.column(1), 0.0);
+
+        columns.removeColumns(new int[] {0});
+        Assert.assertTrue(columns.isSparse(0));
+
+        columns.setValue(0, 2, 1.0);
+        Assert.assertFalse(columns.isSparse(0));
+        Assert.assertEquals(0, columns.numMissing(0));
+    }
+}
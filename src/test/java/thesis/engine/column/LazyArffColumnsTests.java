@@ -0,0 +1,56 @@
+package thesis.engine.column;
+
+import org.junit.Assert;
+import org.junit.Test;
+import thesis.engine.FileProcessingEngine;
+
+public class LazyArffColumnsTests {
+
+    private static final String FILENAME = "data/test/test.arff";
+
+    @Test
+    public void testColumnsMatchParsedDataSet() {
+        ColumnStore expectedColumns = ColumnStore.of(FileProcessingEngine.readDataSetFromFile(FILENAME));
+        LazyArffColumns columns = LazyArffColumns.open(FILENAME, Long.MAX_VALUE);
+
+        Assert.assertEquals(expectedColumns.numRows(), columns.numRows());
+        Assert.assertTrue(expectedColumns.getHeader().equalHeaders(columns.getHeader()));
+        for (int column = 0; column < expectedColumns.numColumns(); column++) {
+            Assert.assertArrayEquals(expectedColumns.column(column), columns.column(column), 0.0);
+        }
+    }
+
+    @Test
+    public void testColumnsAreParsedOnDemand() {
+        LazyArffColumns columns = LazyArffColumns.open(FILENAME, Long.MAX_VALUE);
+        Assert.assertEquals(0, columns.numCachedColumns());
+
+        double[] values = columns.column(3);
+
+        Assert.assertSame(values, columns.column(3));
+        Assert.assertEquals(1, columns.numCachedColumns());
+        Assert.assertEquals(1, columns.getNumParsedColumns());
+    }
+
+    @Test
+    public void testMemoryBudgetEvictsLeastRecentlyUsedColumns() {
+        LazyArffColumns columns = LazyArffColumns.open(FILENAME, 2 * 3 * Double.BYTES);
+
+        columns.column(1);
+        columns.column(2);
+        columns.column(1);
+        columns.column(3);
+
+        Assert.assertEquals(2, columns.numCachedColumns());
+        Assert.assertEquals(1, columns.getNumEvictedColumns());
+        columns.column(1);
+        Assert.assertEquals(3, columns.getNumParsedColumns());
+        columns.column(2);
+        Assert.assertEquals(4, columns.getNumParsedColumns());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOpenRejectsFilesWithoutData() {
+        LazyArffColumns.open("pom.xml", Long.MAX_VALUE);
+    }
+}
@@ -0,0 +1,73 @@
+package thesis.engine.column;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+public class RowRangesTests {
+
+    @Test
+    public void testForEachVisitsEveryRowOnce() {
+        int numRows = 10_000;
+        AtomicIntegerArray visits = new AtomicIntegerArray(numRows);
+
+        RowRanges.forEach(numRows, 4, 100, (fromRow, toRow) -> {
+            Assert.assertEquals(0, fromRow % Long.SIZE);
+            for (int row = fromRow; row < toRow; row++) {
+                visits.incrementAndGet(row);
+            }
+        });
+
+        for (int row = 0; row < numRows; row++) {
+            Assert.assertEquals(1, visits.get(row));
+        }
+    }
+
+    @Test
+    public void testParallelMissingValueUpdatesMatchSerialUpdates() {
+        int numRows = 10_000;
+        ColumnStore serial = createColumnStore(numRows);
+        ColumnStore parallel = createColumnStore(numRows);
+
+        replaceEveryThirdRow(serial, 1);
+        replaceEveryThirdRow(parallel, 4);
+
+        for (int row = 0; row < numRows; row++) {
+            Assert.assertEquals(serial.isMissing(0, row), parallel.isMissing(0, row));
+            Assert.assertEquals(Double.doubleToLongBits(serial.value(0, row)), Double.doubleToLongBits(parallel.value(0, row)));
+        }
+        Assert.assertEquals(serial.numMissing(0), parallel.numMissing(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testForEachRejectsInvalidParallelism() {
+        RowRanges.forEach(10, 0, (fromRow, toRow) -> { });
+    }
+
+    private static ColumnStore createColumnStore(int numRows) {
+        Instances header = new Instances("test", new ArrayList<>(Collections.singletonList(new Attribute("gsm_rssi"))), 0);
+        double[] values = new double[numRows];
+        for (int row = 0; row < numRows; row++) {
+            values[row] = row % 2 == 0 ? Double.NaN : row;
+        }
+        double[] weights = new double[numRows];
+        Arrays.fill(weights, 1.0);
+        return ColumnStore.of(header, Collections.singletonList(values), weights);
+    }
+
+    private static void replaceEveryThirdRow(ColumnStore columns, int parallelism) {
+        RowRanges.forEach(columns.numRows(), parallelism, 100, (fromRow, toRow) -> {
+            for (int row = fromRow; row < toRow; row++) {
+                if (columns.isMissing(0, row) && row % 3 == 0) {
+                    columns.setValue(0, row, -row);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,67 @@
+package thesis.engine.column;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SparseColumnTests {
+
+    private static final double NAN = Double.NaN;
+
+    @Test
+    public void testCompressMostlyMissingColumn() {
+        SparseColumn column = SparseColumn.compress(new double[] {NAN, 3, NAN, NAN, 0}, 0.5);
+
+        Assert.assertNotNull(column);
+        Assert.assertTrue(Double.isNaN(column.getDefaultValue()));
+        Assert.assertArrayEquals(new int[] {1, 4}, column.rows());
+        Assert.assertArrayEquals(new double[] {3, 0}, column.values(), 0.0);
+        Assert.assertEquals(3, column.numDefaults());
+    }
+
+    @Test
+    public void testCompressMostlyZeroColumn() {
+        SparseColumn column = SparseColumn.compress(new double[] {0, 0, -0.0, 2, 0}, 0.5);
+
+        Assert.assertNotNull(column);
+        Assert.assertEquals(0.0, column.getDefaultValue(), 0.0);
+        Assert.assertArrayEquals(new int[] {2, 3}, column.rows());
+        Assert.assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(column.get(2)));
+    }
+
+    @Test
+    public void testDenseColumnIsNotCompressed() {
+        Assert.assertNull(SparseColumn.compress(new double[] {1, NAN, 0, 4}, 0.5));
+        Assert.assertNull(SparseColumn.compress(new double[0], 0.5));
+    }
+
+    @Test
+    public void testToDenseRoundTrip() {
+        double[] values = {NAN, 1.5, NAN, NAN, -2};
+
+        double[] dense = SparseColumn.of(values, NAN).toDense();
+
+        Assert.assertArrayEquals(values, dense, 0.0);
+        Assert.assertEquals(1.5, SparseColumn.of(values, NAN).get(1), 0.0);
+        Assert.assertTrue(Double.isNaN(SparseColumn.of(values, NAN).get(3)));
+    }
+
+    @Test
+    public void testTransformAppliesToDefaultAndEntries() {
+        SparseColumn column = SparseColumn.of(new double[] {NAN, 4, NAN, 2}, NAN);
+
+        column.transform(value -> Double.isNaN(value) ? 3 : value);
+        column.transform(value -> value / 4);
+
+        Assert.assertArrayEquals(new double[] {0.75, 1, 0.75, 0.5}, column.toDense(), 0.0);
+    }
+
+    @Test
+    public void testSelectRows() {
+        SparseColumn column = SparseColumn.of(new double[] {0, 7, 0, 9}, 0);
+
+        SparseColumn selected = column.selectRows(new int[] {3, 0, 1, 1});
+
+        Assert.assertArrayEquals(new double[] {9, 0, 7, 7}, selected.toDense(), 0.0);
+        Assert.assertArrayEquals(new int[] {0, 2, 3}, selected.rows());
+    }
+}
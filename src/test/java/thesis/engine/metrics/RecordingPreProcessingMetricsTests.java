@@ -0,0 +1,54 @@
+package thesis.engine.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecordingPreProcessingMetricsTests {
+
+    @Test
+    public void testRecordStage() {
+        RecordingPreProcessingMetrics metrics = new RecordingPreProcessingMetrics();
+
+        metrics.stageStarted("balanceDataSet", 10);
+        metrics.stageFinished("balanceDataSet", 4);
+
+        Assert.assertEquals(1, metrics.getStageMetrics().size());
+        StageMetrics stageMetrics = metrics.getStageMetrics().get(0);
+        Assert.assertEquals("balanceDataSet", stageMetrics.getStageName());
+        Assert.assertEquals(10, stageMetrics.getNumRowsIn());
+        Assert.assertEquals(4, stageMetrics.getNumRowsOut());
+        Assert.assertTrue(stageMetrics.getWallTimeNanos() >= 0);
+        Assert.assertTrue(stageMetrics.getPeakHeapUpperBoundBytes() > 0);
+    }
+
+    @Test
+    public void testToJson() {
+        RecordingPreProcessingMetrics metrics = new RecordingPreProcessingMetrics();
+
+        metrics.stageStarted("normalizeAttributeValues", 3);
+        metrics.stageFinished("normalizeAttributeValues", 3);
+
+        String json = metrics.toJson();
+        Assert.assertTrue(json.contains("\"stage\": \"normalizeAttributeValues\""));
+        Assert.assertTrue(json.contains("\"rowsIn\": 3"));
+        Assert.assertTrue(json.contains("\"rowsOut\": 3"));
+    }
+
+    @Test
+    public void testToJsonEscapesStageNames() {
+        RecordingPreProcessingMetrics metrics = new RecordingPreProcessingMetrics();
+
+        metrics.stageStarted("read \"C:\\data\"\n", 3);
+        metrics.stageFinished("read \"C:\\data\"\n", 3);
+
+        Assert.assertTrue(metrics.toJson().contains("\"stage\": \"read \\\"C:\\\\data\\\"\\u000a\""));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFinishingUnstartedStageFails() {
+        RecordingPreProcessingMetrics metrics = new RecordingPreProcessingMetrics();
+
+        metrics.stageStarted("filterUnneededAttributes", 3);
+        metrics.stageFinished("balanceDataSet", 3);
+    }
+}
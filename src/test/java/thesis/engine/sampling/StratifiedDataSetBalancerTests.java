@@ -0,0 +1,66 @@
+package thesis.engine.sampling;
+
+import org.junit.Assert;
+import org.junit.Test;
+import thesis.engine.column.ColumnStore;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+
+public class StratifiedDataSetBalancerTests {
+
+    private final Instances dataSet;
+
+    public StratifiedDataSetBalancerTests() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("gsm_rssi"));
+        attributes.add(new Attribute("satisfaction", Arrays.asList("unsatisfied", "neutral", "satisfied")));
+        dataSet = new Instances("test", attributes, 1000);
+        Random random = new Random(42);
+        for (int row = 0; row < 1000; row++) {
+            double classValue = row % 10 == 0 ? 0 : row % 4 == 0 ? 1 : 2;
+            dataSet.add(new DenseInstance(1.0, new double[] {random.nextGaussian(), row % 97 == 0 ? Utils.missingValue() : classValue}));
+        }
+        dataSet.setClassIndex(1);
+    }
+
+    @Test
+    public void testSelectRowsBalancesAllClasses() {
+        int[] rows = StratifiedDataSetBalancer.selectRows(ColumnStore.of(dataSet), StratifiedReservoirSampler.Mode.UNDERSAMPLE, 42);
+
+        int[] classCounts = new int[3];
+        for (int i = 0; i < rows.length; i++) {
+            Assert.assertFalse(dataSet.instance(rows[i]).classIsMissing());
+            Assert.assertTrue(i == 0 || rows[i - 1] < rows[i]);
+            classCounts[(int) dataSet.instance(rows[i]).classValue()]++;
+        }
+        Assert.assertEquals(classCounts[0], classCounts[1]);
+        Assert.assertEquals(classCounts[0], classCounts[2]);
+        Assert.assertTrue(classCounts[0] > 0);
+    }
+
+    @Test
+    public void testChunkedBalancingMatchesFullBalancing() {
+        int smallestClassSize = (int) dataSet.stream()
+                .filter(instance -> !instance.classIsMissing() && instance.classValue() == 0)
+                .count();
+        int[] rows = StratifiedDataSetBalancer.selectRows(ColumnStore.of(dataSet), StratifiedReservoirSampler.Mode.UNDERSAMPLE, 42);
+
+        StratifiedDataSetBalancer balancer = new StratifiedDataSetBalancer(dataSet,
+                StratifiedReservoirSampler.Mode.UNDERSAMPLE, smallestClassSize, 42);
+        for (int from = 0; from < dataSet.numInstances(); from += 64) {
+            balancer.accept(new Instances(dataSet, from, Math.min(64, dataSet.numInstances() - from)));
+        }
+        Instances balancedDataSet = balancer.getBalancedDataSet();
+
+        Assert.assertEquals(rows.length, balancedDataSet.numInstances());
+        double[] expectedValues = Arrays.stream(rows).mapToDouble(row -> dataSet.instance(row).value(0)).sorted().toArray();
+        double[] values = balancedDataSet.stream().mapToDouble(instance -> instance.value(0)).sorted().toArray();
+        Assert.assertArrayEquals(expectedValues, values, 0.0);
+    }
+}
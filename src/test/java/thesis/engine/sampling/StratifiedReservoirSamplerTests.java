@@ -0,0 +1,71 @@
+package thesis.engine.sampling;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class StratifiedReservoirSamplerTests {
+
+    @Test
+    public void testUndersampleReducesEveryStratumToSmallestOne() {
+        StratifiedReservoirSampler<Integer> sampler = createSampler(StratifiedReservoirSampler.Mode.UNDERSAMPLE, 42);
+
+        List<Integer> sample = sampler.sample();
+
+        Assert.assertEquals(3 * 10, sample.size());
+        for (int stratum = 0; stratum < 3; stratum++) {
+            Assert.assertEquals(10, countStratum(sample, stratum));
+        }
+    }
+
+    @Test
+    public void testOversampleFillsEveryStratumToLargestOne() {
+        StratifiedReservoirSampler<Integer> sampler = createSampler(StratifiedReservoirSampler.Mode.OVERSAMPLE, 42);
+
+        List<Integer> sample = sampler.sample();
+
+        for (int stratum = 0; stratum < 3; stratum++) {
+            Assert.assertEquals(1000, countStratum(sample, stratum));
+        }
+    }
+
+    @Test
+    public void testSampleIsDeterministicForSeed() {
+        Assert.assertEquals(createSampler(StratifiedReservoirSampler.Mode.UNDERSAMPLE, 7).sample(),
+                createSampler(StratifiedReservoirSampler.Mode.UNDERSAMPLE, 7).sample());
+        Assert.assertNotEquals(createSampler(StratifiedReservoirSampler.Mode.UNDERSAMPLE, 7).sample(),
+                createSampler(StratifiedReservoirSampler.Mode.UNDERSAMPLE, 8).sample());
+    }
+
+    @Test
+    public void testCapacityBoundsReservoirs() {
+        StratifiedReservoirSampler<Integer> sampler = new StratifiedReservoirSampler<>(
+                StratifiedReservoirSampler.Mode.OVERSAMPLE, 5, 42);
+        for (int item = 0; item < 1000; item++) {
+            sampler.offer(0, item);
+        }
+
+        List<Integer> sample = sampler.sample();
+
+        Assert.assertEquals(1000, sampler.getNumOffered(0));
+        Assert.assertEquals(5, sample.size());
+        Assert.assertEquals(5, sample.stream().distinct().count());
+    }
+
+    // Items encode their stratum as item % 3, the strata hold 1000, 10 and 200 items
+    private static StratifiedReservoirSampler<Integer> createSampler(StratifiedReservoirSampler.Mode mode, long seed) {
+        StratifiedReservoirSampler<Integer> sampler = new StratifiedReservoirSampler<>(mode, seed);
+        int[] sizes = {1000, 10, 200};
+        for (int stratum = 0; stratum < sizes.length; stratum++) {
+            for (int i = 0; i < sizes[stratum]; i++) {
+                sampler.offer(stratum, i * 3 + stratum);
+            }
+        }
+        return sampler;
+    }
+
+    private static long countStratum(List<Integer> sample, int stratum) {
+        return sample.stream().filter(item -> item % 3 == stratum).count();
+    }
+}
@@ -3,6 +3,7 @@ package thesis.engine.selection;
 import org.junit.Assert;
 import org.junit.Test;
 import thesis.engine.FileProcessingEngine;
+import thesis.engine.column.ColumnStore;
 import weka.core.Attribute;
 import weka.core.Instances;
 
@@ -32,6 +33,16 @@ public class AttributeSelectionStrategyTests {
                 .anyMatch(subSet -> subSet.size() < MIN_SET_SIZE || subSet.size() > MAX_SET_SIZE));
     }
 
+    @Test
+    public void testGenerateAttributeSubsetsIsDeterministicForSeed() {
+        strategy.setSeed(42);
+        List<Set<Attribute>> serialSubSets = strategy.generateAttributeSubsets();
+        strategy.setParallelism(4);
+        List<Set<Attribute>> parallelSubSets = strategy.generateAttributeSubsets();
+
+        Assert.assertEquals(serialSubSets, parallelSubSets);
+    }
+
     @Test
     public void testFindAttributesToRemove() {
         Set<Attribute> bestAttributeSet = new HashSet<>();
@@ -42,4 +53,30 @@ public class AttributeSelectionStrategyTests {
 
         Assert.assertEquals(strategy.getDataSet().numAttributes() - 2, attributesToRemove.size());
     }
+
+    @Test
+    public void testMostlyZeroColumnIsCorrelatedSparsely() {
+        Instances dataSet = SelectionTestDataSets.generate(6, 1000, 42);
+        for (int row = 0; row < dataSet.numInstances(); row++) {
+            if (row % 10 != 0) {
+                dataSet.instance(row).setValue(3, 0);
+            }
+        }
+        CorrelationBasedSelectionStrategy sparseStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 4, 50);
+        sparseStrategy.setSeed(42);
+        CorrelationBasedSelectionStrategy denseStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 4, 50);
+        denseStrategy.setSeed(42);
+        denseStrategy.setSparseThreshold(2);
+
+        double sparseMerit = sparseStrategy.findBestAttributeSubsets(1).get(0).getMerit();
+        double denseMerit = denseStrategy.findBestAttributeSubsets(1).get(0).getMerit();
+
+        ColumnStore columns = (ColumnStore) sparseStrategy.getColumns();
+        Assert.assertEquals(1, columns.numSparseColumns());
+        Assert.assertTrue(columns.isSparse(3));
+        Assert.assertEquals(0, ((ColumnStore) denseStrategy.getColumns()).numSparseColumns());
+        Assert.assertEquals(denseStrategy.getCorrelationMatrix().getClassCorrelation(3),
+                sparseStrategy.getCorrelationMatrix().getClassCorrelation(3), 1e-12);
+        Assert.assertEquals(denseMerit, sparseMerit, 1e-12);
+    }
 }
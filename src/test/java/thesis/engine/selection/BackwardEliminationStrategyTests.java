@@ -0,0 +1,46 @@
+package thesis.engine.selection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+import java.util.List;
+
+public class BackwardEliminationStrategyTests {
+
+    private static final int NUM_ATTRIBUTES = 30;
+    private final Instances dataSet = SelectionTestDataSets.generate(NUM_ATTRIBUTES, 2000, 42);
+
+    @Test
+    public void testFindBestAttributeSubsetsRespectsSizeLimits() {
+        BackwardEliminationStrategy strategy = new BackwardEliminationStrategy(dataSet, 2, 5);
+
+        List<ScoredAttributeSubset> bestSubsets = strategy.findBestAttributeSubsets(10);
+
+        Assert.assertFalse(bestSubsets.isEmpty());
+        for (ScoredAttributeSubset subset : bestSubsets) {
+            Assert.assertTrue(subset.size() >= 2 && subset.size() <= 5);
+        }
+        // Every elimination step evaluates one subset per remaining attribute
+        Assert.assertTrue(strategy.getNumEvaluations() <= 1 + (long) NUM_ATTRIBUTES * (NUM_ATTRIBUTES + 1) / 2);
+    }
+
+    @Test
+    public void testGetAttributesToRemoveKeepsBestSubset() {
+        BackwardEliminationStrategy strategy = new BackwardEliminationStrategy(dataSet, 2, 5);
+        int[] bestAttributeIndices = strategy.findBestAttributeSubsets(1).get(0).getAttributeIndices();
+
+        String[] attributesToRemove = strategy.getAttributesToRemove();
+
+        Assert.assertEquals(NUM_ATTRIBUTES - bestAttributeIndices.length, attributesToRemove.length);
+    }
+
+    @Test
+    public void testLastEliminationKeepsMoreRelevantAttribute() {
+        Instances relevanceDataSet = SelectionTestDataSets.generate(2, 2000, 42, 0, 1);
+
+        BackwardEliminationStrategy strategy = new BackwardEliminationStrategy(relevanceDataSet, 1, 1);
+
+        Assert.assertArrayEquals(new int[] {0}, strategy.findBestAttributeSubsets(1).get(0).getAttributeIndices());
+    }
+}
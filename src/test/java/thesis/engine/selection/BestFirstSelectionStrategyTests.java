@@ -0,0 +1,63 @@
+package thesis.engine.selection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+import java.util.List;
+
+public class BestFirstSelectionStrategyTests {
+
+    private static final int NUM_ATTRIBUTES = 30;
+    private final Instances dataSet = SelectionTestDataSets.generate(NUM_ATTRIBUTES, 2000, 42);
+
+    @Test
+    public void testFindBestAttributeSubsetsRespectsSizeLimits() {
+        BestFirstSelectionStrategy strategy = new BestFirstSelectionStrategy(dataSet, 3, 8);
+
+        List<ScoredAttributeSubset> bestSubsets = strategy.findBestAttributeSubsets(10);
+
+        Assert.assertEquals(10, bestSubsets.size());
+        for (ScoredAttributeSubset subset : bestSubsets) {
+            Assert.assertTrue(subset.size() >= 3 && subset.size() <= 8);
+        }
+    }
+
+    @Test
+    public void testBacktrackingIsAtLeastAsGoodAsGreedyForwardSelection() {
+        for (int maxSetSize = 2; maxSetSize <= 8; maxSetSize++) {
+            BestFirstSelectionStrategy bestFirstStrategy = new BestFirstSelectionStrategy(dataSet, 2, maxSetSize);
+            GreedyForwardSelectionStrategy greedyStrategy = new GreedyForwardSelectionStrategy(dataSet, 2, maxSetSize);
+
+            ScoredAttributeSubset bestFirstSubset = bestFirstStrategy.findBestAttributeSubsets(1).get(0);
+            ScoredAttributeSubset greedySubset = greedyStrategy.findBestAttributeSubsets(1).get(0);
+
+            Assert.assertTrue(Math.abs(bestFirstSubset.getMerit()) >= Math.abs(greedySubset.getMerit()));
+        }
+    }
+
+    @Test
+    public void testStaleExpansionLimitBoundsSearch() {
+        BestFirstSelectionStrategy shortStrategy = new BestFirstSelectionStrategy(dataSet, 2, 8, 1);
+        BestFirstSelectionStrategy longStrategy = new BestFirstSelectionStrategy(dataSet, 2, 8, 10);
+
+        shortStrategy.findBestAttributeSubsets(1);
+        longStrategy.findBestAttributeSubsets(1);
+
+        Assert.assertTrue(shortStrategy.getNumEvaluations() < longStrategy.getNumEvaluations());
+    }
+
+    @Test
+    public void testMostRelevantSingleAttributeRanksFirst() {
+        Instances relevanceDataSet = SelectionTestDataSets.generate(6, 2000, 42, 4, 5);
+
+        BestFirstSelectionStrategy strategy = new BestFirstSelectionStrategy(relevanceDataSet, 1, 1);
+
+        Assert.assertArrayEquals(new int[] {4}, strategy.findBestAttributeSubsets(1).get(0).getAttributeIndices());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvalidStaleExpansionLimit() {
+        new BestFirstSelectionStrategy(dataSet, 2, 8, 0);
+    }
+}
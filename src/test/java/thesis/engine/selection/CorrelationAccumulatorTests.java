@@ -0,0 +1,85 @@
+package thesis.engine.selection;
+
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+public class CorrelationAccumulatorTests {
+
+    private static final int NUM_ROWS = 1000;
+    private final Instances dataSet;
+
+    public CorrelationAccumulatorTests() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("gsm_rssi"));
+        attributes.add(new Attribute("pos_uncertainty"));
+        attributes.add(new Attribute("no_cell_locates"));
+        attributes.add(new Attribute("rating"));
+        dataSet = new Instances("test", attributes, NUM_ROWS);
+        Random random = new Random(42);
+        for (int row = 0; row < NUM_ROWS; row++) {
+            double gsmRssi = -80 + random.nextGaussian() * 10;
+            double posUncertainty = 20 - gsmRssi * 0.3 + random.nextGaussian();
+            double noCellLocates = row % 10 == 0 ? Utils.missingValue() : random.nextInt(5);
+            dataSet.add(new DenseInstance(1.0, new double[] {gsmRssi, posUncertainty, noCellLocates, 1 + random.nextInt(5)}));
+        }
+        dataSet.setClassIndex(3);
+    }
+
+    @Test
+    public void testCorrelationsMatchPearsonsCorrelation() {
+        CorrelationAccumulator accumulator = CorrelationAccumulator.forStructure(dataSet);
+        accumulator.accumulate(dataSet);
+
+        double expectedCorrelation = new PearsonsCorrelation().correlation(
+                dataSet.attributeToDoubleArray(0), dataSet.attributeToDoubleArray(1));
+        Assert.assertEquals(expectedCorrelation, accumulator.getCorrelation(0, 1), 1e-12);
+        Assert.assertEquals(expectedCorrelation, accumulator.getCorrelation(1, 0), 1e-12);
+        Assert.assertEquals(NUM_ROWS, accumulator.getCount(0, 1));
+        Assert.assertEquals(new PearsonsCorrelation().correlation(dataSet.attributeToDoubleArray(0),
+                dataSet.attributeToDoubleArray(3)), accumulator.getClassCorrelation(0), 1e-12);
+    }
+
+    @Test
+    public void testMissingValuesAreLeftOutOfPairs() {
+        CorrelationAccumulator accumulator = CorrelationAccumulator.forStructure(dataSet);
+        accumulator.accumulate(dataSet);
+
+        Assert.assertEquals(NUM_ROWS - NUM_ROWS / 10, accumulator.getCount(0, 2));
+        Assert.assertFalse(Double.isNaN(accumulator.getCorrelation(0, 2)));
+    }
+
+    @Test
+    public void testChunkedAndMergedAccumulatorsMatchSingleAccumulator() {
+        CorrelationAccumulator accumulator = CorrelationAccumulator.forStructure(dataSet);
+        accumulator.accumulate(dataSet);
+
+        CorrelationAccumulator chunkedAccumulator = CorrelationAccumulator.forStructure(dataSet);
+        CorrelationAccumulator otherAccumulator = CorrelationAccumulator.forStructure(dataSet);
+        chunkedAccumulator.accumulate(new Instances(dataSet, 0, 300));
+        chunkedAccumulator.accumulate(new Instances(dataSet, 300, 200));
+        otherAccumulator.accumulate(new Instances(dataSet, 500, 500));
+        chunkedAccumulator.merge(otherAccumulator);
+
+        for (int first = 0; first < dataSet.numAttributes(); first++) {
+            for (int second = 0; second < dataSet.numAttributes(); second++) {
+                Assert.assertEquals(accumulator.getCorrelation(first, second), chunkedAccumulator.getCorrelation(first, second), 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testCorrelationIsUndefinedForFewRows() {
+        CorrelationAccumulator accumulator = CorrelationAccumulator.forStructure(dataSet);
+        accumulator.accumulate(new Instances(dataSet, 0, 1));
+
+        Assert.assertTrue(Double.isNaN(accumulator.getCorrelation(0, 1)));
+    }
+}
@@ -5,10 +5,12 @@ import org.junit.Before;
 import org.junit.Test;
 import thesis.engine.FileProcessingEngine;
 import thesis.engine.PreProcessingEngine;
+import thesis.engine.column.LazyArffColumns;
 import weka.core.Attribute;
 import weka.core.Instances;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -76,6 +78,48 @@ public class CorrelationBasedSelectionStrategyTests {
                 bestAttributeSet.stream().map(Attribute::name).toArray());
     }
 
+    @Test
+    public void testParallelSelectionMatchesSerialSelection() {
+        CorrelationBasedSelectionStrategy serialStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 4, 50);
+        serialStrategy.setSeed(7);
+        CorrelationBasedSelectionStrategy parallelStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 4, 50);
+        parallelStrategy.setSeed(7);
+        parallelStrategy.setParallelism(4);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList(serialStrategy.getAttributesToRemove())),
+                new HashSet<>(Arrays.asList(parallelStrategy.getAttributesToRemove())));
+    }
+
+    @Test
+    public void testSelectionOnLazyColumnsMatchesSelectionOnDataSet() {
+        LazyArffColumns columns = LazyArffColumns.open(FILENAME, 2 * dataSet.numInstances() * Double.BYTES);
+        columns.setClassIndex(dataSet.classIndex());
+        CorrelationBasedSelectionStrategy lazyStrategy = new CorrelationBasedSelectionStrategy(columns.getHeader(), 2, 4, 50);
+        lazyStrategy.setColumns(columns);
+        lazyStrategy.setSeed(7);
+        CorrelationBasedSelectionStrategy eagerStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 4, 50);
+        eagerStrategy.setSeed(7);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList(eagerStrategy.getAttributesToRemove())),
+                new HashSet<>(Arrays.asList(lazyStrategy.getAttributesToRemove())));
+        Assert.assertTrue(columns.numCachedColumns() <= 2);
+    }
+
+    @Test
+    public void testSelectionOnAccumulatedCorrelationsMatchesSelectionOnDataSet() {
+        CorrelationAccumulator accumulator = CorrelationAccumulator.forStructure(dataSet);
+        accumulator.accumulate(new Instances(dataSet, 0, 2));
+        accumulator.accumulate(new Instances(dataSet, 2, 1));
+        CorrelationBasedSelectionStrategy accumulatedStrategy = new CorrelationBasedSelectionStrategy(new Instances(dataSet, 0), 2, 4, 50);
+        accumulatedStrategy.setCorrelations(accumulator);
+        accumulatedStrategy.setSeed(7);
+        CorrelationBasedSelectionStrategy eagerStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 4, 50);
+        eagerStrategy.setSeed(7);
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList(eagerStrategy.getAttributesToRemove())),
+                new HashSet<>(Arrays.asList(accumulatedStrategy.getAttributesToRemove())));
+    }
+
     private void createTestFeatureSet() {
         featureSet.add(dataSet.attribute("gsm_rssi"));
         featureSet.add(dataSet.attribute("pos_uncertainty"));
@@ -0,0 +1,111 @@
+package thesis.engine.selection;
+
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.junit.Assert;
+import org.junit.Test;
+import thesis.engine.column.SparseColumn;
+
+import java.util.Random;
+
+public class CorrelationKernelTests {
+
+    private static final double DELTA = 1e-12;
+
+    @Test
+    public void testCorrelateMatchesPearsonsCorrelation() {
+        Random random = new Random(1);
+        for (int length : new int[] {2, 3, 7, 8, 1001}) {
+            double[] first = new double[length];
+            double[] second = new double[length];
+            for (int row = 0; row < length; row++) {
+                first[row] = random.nextGaussian();
+                second[row] = first[row] * 0.5 + random.nextGaussian();
+            }
+
+            Assert.assertEquals(new PearsonsCorrelation().correlation(first, second),
+                    CorrelationKernel.correlate(first, second), DELTA);
+        }
+    }
+
+    // Values far from zero, where commons-math itself is off by more than the tolerance
+    @Test
+    public void testCorrelateShiftedValues() {
+        Random random = new Random(1);
+        double[] first = new double[1001];
+        double[] second = new double[1001];
+        for (int row = 0; row < first.length; row++) {
+            first[row] = 1e6 + random.nextGaussian();
+            second[row] = first[row] * 0.5 + random.nextGaussian();
+        }
+
+        Assert.assertEquals(correlateInTwoPasses(first, second), CorrelationKernel.correlate(first, second), DELTA);
+    }
+
+    @Test
+    public void testCorrelateOneWithMany() {
+        Random random = new Random(2);
+        double[] column = new double[99];
+        double[][] others = new double[5][99];
+        for (int row = 0; row < column.length; row++) {
+            column[row] = random.nextDouble();
+            for (double[] other : others) {
+                other[row] = column[row] * random.nextDouble() + random.nextGaussian();
+            }
+        }
+
+        double[] results = new double[others.length];
+        CorrelationKernel.correlate(column, others, results);
+
+        for (int other = 0; other < others.length; other++) {
+            Assert.assertEquals(new PearsonsCorrelation().correlation(column, others[other]), results[other], DELTA);
+        }
+    }
+
+    @Test
+    public void testUndefinedCorrelations() {
+        Assert.assertTrue(Double.isNaN(CorrelationKernel.correlate(new double[] {2, 2, 2, 2, 2}, new double[] {1, 2, 3, 4, 5})));
+        Assert.assertTrue(Double.isNaN(CorrelationKernel.correlate(new double[] {1, Double.NaN, 3}, new double[] {1, 2, 3})));
+        Assert.assertTrue(Double.isNaN(CorrelationKernel.correlate(new double[] {1}, new double[] {2})));
+    }
+
+    @Test
+    public void testCorrelateSparseColumns() {
+        Random random = new Random(3);
+        double[] first = new double[1000];
+        double[] second = new double[1000];
+        double[] dense = new double[1000];
+        for (int row = 0; row < first.length; row++) {
+            first[row] = random.nextDouble() < 0.8 ? 0 : random.nextGaussian();
+            second[row] = random.nextDouble() < 0.8 ? 2 : first[row] + random.nextGaussian();
+            dense[row] = first[row] * 0.5 + random.nextGaussian();
+        }
+        SparseColumn sparseFirst = SparseColumn.of(first, 0);
+        SparseColumn sparseSecond = SparseColumn.of(second, 2);
+
+        Assert.assertEquals(CorrelationKernel.correlate(first, dense), CorrelationKernel.correlate(sparseFirst, dense), DELTA);
+        Assert.assertEquals(CorrelationKernel.correlate(first, second),
+                CorrelationKernel.correlate(sparseFirst, sparseSecond), DELTA);
+        Assert.assertTrue(Double.isNaN(CorrelationKernel.correlate(SparseColumn.of(new double[] {Double.NaN, 1, Double.NaN},
+                Double.NaN), new double[] {1, 2, 3})));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testCorrelateColumnsOfDifferentLength() {
+        CorrelationKernel.correlate(new double[] {1, 2, 3}, new double[] {1, 2});
+    }
+
+    private static double correlateInTwoPasses(double[] first, double[] second) {
+        double firstMean = 0, secondMean = 0;
+        for (int row = 0; row < first.length; row++) {
+            firstMean += first[row] / first.length;
+            secondMean += second[row] / second.length;
+        }
+        double firstSquares = 0, secondSquares = 0, products = 0;
+        for (int row = 0; row < first.length; row++) {
+            firstSquares += (first[row] - firstMean) * (first[row] - firstMean);
+            secondSquares += (second[row] - secondMean) * (second[row] - secondMean);
+            products += (first[row] - firstMean) * (second[row] - secondMean);
+        }
+        return products / Math.sqrt(firstSquares * secondSquares);
+    }
+}
@@ -0,0 +1,44 @@
+package thesis.engine.selection;
+
+import org.apache.commons.math3.stat.correlation.PearsonsCorrelation;
+import org.junit.Assert;
+import org.junit.Test;
+import thesis.engine.FileProcessingEngine;
+import thesis.engine.column.ColumnStore;
+import weka.core.Instances;
+
+public class CorrelationMatrixTests {
+
+    private static final String FILENAME = "data/test/test.arff";
+    private static final double DELTA = 1e-12;
+    private final Instances dataSet;
+    private final CorrelationMatrix correlationMatrix;
+
+    public CorrelationMatrixTests() {
+        dataSet = FileProcessingEngine.readDataSetFromFile(FILENAME);
+        dataSet.setClass(dataSet.attribute("rating"));
+        correlationMatrix = new CorrelationMatrix(ColumnStore.of(dataSet));
+    }
+
+    @Test
+    public void testGetCorrelation() {
+        int gsmRssi = dataSet.attribute("gsm_rssi").index();
+        int posUncertainty = dataSet.attribute("pos_uncertainty").index();
+        double expectedCorrelation = new PearsonsCorrelation().correlation(
+                dataSet.attributeToDoubleArray(gsmRssi), dataSet.attributeToDoubleArray(posUncertainty));
+
+        Assert.assertEquals(expectedCorrelation, correlationMatrix.getCorrelation(gsmRssi, posUncertainty), DELTA);
+        Assert.assertEquals(expectedCorrelation, correlationMatrix.getCorrelation(posUncertainty, gsmRssi), DELTA);
+        Assert.assertEquals(1.0, correlationMatrix.getCorrelation(gsmRssi, gsmRssi), 0.0);
+    }
+
+    @Test
+    public void testGetClassCorrelation() {
+        int gsmRssi = dataSet.attribute("gsm_rssi").index();
+        double expectedCorrelation = new PearsonsCorrelation().correlation(
+                dataSet.attributeToDoubleArray(gsmRssi), dataSet.attributeToDoubleArray(dataSet.classIndex()));
+
+        Assert.assertEquals(expectedCorrelation, correlationMatrix.getClassCorrelation(gsmRssi), DELTA);
+        Assert.assertEquals(expectedCorrelation, correlationMatrix.getClassCorrelation(gsmRssi), DELTA);
+    }
+}
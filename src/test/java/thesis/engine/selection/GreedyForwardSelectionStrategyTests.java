@@ -0,0 +1,42 @@
+package thesis.engine.selection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+import java.util.List;
+
+public class GreedyForwardSelectionStrategyTests {
+
+    private static final int NUM_ATTRIBUTES = 30;
+    private final Instances dataSet = SelectionTestDataSets.generate(NUM_ATTRIBUTES, 2000, 42);
+
+    @Test
+    public void testFindBestAttributeSubsetsRespectsSizeLimits() {
+        GreedyForwardSelectionStrategy strategy = new GreedyForwardSelectionStrategy(dataSet, 2, 5);
+
+        List<ScoredAttributeSubset> bestSubsets = strategy.findBestAttributeSubsets(10);
+
+        Assert.assertFalse(bestSubsets.isEmpty());
+        for (ScoredAttributeSubset subset : bestSubsets) {
+            Assert.assertTrue(subset.size() >= 2 && subset.size() <= 5);
+        }
+        Assert.assertTrue(strategy.getNumEvaluations() <= 5L * NUM_ATTRIBUTES);
+    }
+
+    // Single attribute subsets all have an infinite merit, so the first step must not fall back to index order
+    @Test
+    public void testFirstStepPicksMostRelevantAttribute() {
+        Instances relevanceDataSet = SelectionTestDataSets.generate(6, 2000, 42, 4, 5);
+
+        GreedyForwardSelectionStrategy strategy = new GreedyForwardSelectionStrategy(relevanceDataSet, 1, 1);
+        int[] bestSingleAttribute = strategy.findBestAttributeSubsets(1).get(0).getAttributeIndices();
+
+        GreedyForwardSelectionStrategy extendingStrategy = new GreedyForwardSelectionStrategy(relevanceDataSet, 2, 2);
+        int[] bestPair = extendingStrategy.findBestAttributeSubsets(1).get(0).getAttributeIndices();
+
+        Assert.assertArrayEquals(new int[] {4}, bestSingleAttribute);
+        Assert.assertEquals(2, bestPair.length);
+        Assert.assertTrue(bestPair[0] == 4 || bestPair[1] == 4);
+    }
+}
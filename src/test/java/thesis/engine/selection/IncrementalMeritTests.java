@@ -0,0 +1,105 @@
+package thesis.engine.selection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import thesis.engine.column.ColumnStore;
+import weka.core.Instances;
+
+import java.util.BitSet;
+import java.util.Random;
+
+public class IncrementalMeritTests {
+
+    private static final double DELTA = 1e-9;
+
+    private final Instances dataSet = SelectionTestDataSets.generate(12, 200, 3);
+    private final CorrelationBasedSelectionStrategy strategy = new CorrelationBasedSelectionStrategy(dataSet, 1, 12, 0);
+    private final CorrelationMatrix correlationMatrix = new CorrelationMatrix(ColumnStore.of(dataSet));
+
+    @Test
+    public void testMeritMatchesCalculatedMerit() {
+        IncrementalMerit incrementalMerit = new IncrementalMerit(correlationMatrix);
+        BitSet attributeSubset = new BitSet();
+        Random random = new Random(5);
+
+        for (int step = 0; step < 200; step++) {
+            int attributeIndex = random.nextInt(12);
+            if (attributeSubset.get(attributeIndex)) {
+                incrementalMerit.remove(attributeIndex);
+                attributeSubset.clear(attributeIndex);
+            } else {
+                incrementalMerit.add(attributeIndex);
+                attributeSubset.set(attributeIndex);
+            }
+
+            Assert.assertEquals(attributeSubset, incrementalMerit.getAttributeBits());
+            assertMerit(strategy.calculateMerit(attributeSubset), incrementalMerit.getMerit());
+        }
+    }
+
+    @Test
+    public void testShrinkingToSingleAttribute() {
+        IncrementalMerit incrementalMerit = new IncrementalMerit(correlationMatrix);
+        for (int attributeIndex = 0; attributeIndex < 8; attributeIndex++) {
+            incrementalMerit.add(attributeIndex);
+        }
+        for (int attributeIndex = 0; attributeIndex < 6; attributeIndex++) {
+            incrementalMerit.remove(attributeIndex);
+        }
+        BitSet singleAttribute = new BitSet();
+        singleAttribute.set(7);
+        Assert.assertEquals(strategy.calculateMerit(singleAttribute), incrementalMerit.getMeritWithRemoved(6), 0.0);
+        incrementalMerit.remove(6);
+
+        Assert.assertEquals(new IncrementalMerit(correlationMatrix, singleAttribute).getMerit(), incrementalMerit.getMerit(), 0.0);
+        Assert.assertEquals(strategy.calculateMerit(singleAttribute), incrementalMerit.getMerit(), 0.0);
+    }
+
+    @Test
+    public void testMeritWithAddedAndRemoved() {
+        BitSet attributeSubset = new BitSet();
+        attributeSubset.set(0, 4);
+        IncrementalMerit incrementalMerit = new IncrementalMerit(correlationMatrix, attributeSubset);
+
+        BitSet extendedSubset = (BitSet) attributeSubset.clone();
+        extendedSubset.set(7);
+        assertMerit(strategy.calculateMerit(extendedSubset), incrementalMerit.getMeritWithAdded(7));
+
+        BitSet reducedSubset = (BitSet) attributeSubset.clone();
+        reducedSubset.clear(2);
+        assertMerit(strategy.calculateMerit(reducedSubset), incrementalMerit.getMeritWithRemoved(2));
+
+        Assert.assertEquals(attributeSubset, incrementalMerit.getAttributeBits());
+    }
+
+    @Test
+    public void testUndefinedCorrelationsAreRemovedAgain() {
+        for (int row = 0; row < dataSet.numInstances(); row++) {
+            dataSet.instance(row).setValue(5, 1.0);
+        }
+        CorrelationMatrix correlationMatrix = new CorrelationMatrix(ColumnStore.of(dataSet));
+        BitSet attributeSubset = new BitSet();
+        attributeSubset.set(0, 3);
+        IncrementalMerit incrementalMerit = new IncrementalMerit(correlationMatrix, attributeSubset);
+        double merit = incrementalMerit.getMerit();
+
+        incrementalMerit.add(5);
+        Assert.assertTrue(Double.isNaN(incrementalMerit.getMerit()));
+        assertMerit(merit, incrementalMerit.getMeritWithRemoved(5));
+
+        incrementalMerit.remove(5);
+        assertMerit(merit, incrementalMerit.getMerit());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddExistingAttribute() {
+        IncrementalMerit incrementalMerit = new IncrementalMerit(correlationMatrix);
+        incrementalMerit.add(1);
+        incrementalMerit.add(1);
+    }
+
+    // Merits grow with the factorial of the subset size, so they are compared relatively
+    private static void assertMerit(double expected, double actual) {
+        Assert.assertEquals(expected, actual, Math.abs(expected) * DELTA);
+    }
+}
@@ -0,0 +1,110 @@
+package thesis.engine.selection;
+
+import org.junit.Assert;
+import org.junit.Test;
+import weka.core.Instances;
+
+import java.util.List;
+
+public class SelectionReportTests {
+
+    private final Instances dataSet = SelectionTestDataSets.generate(20, 200, 11);
+
+    @Test
+    public void testCompletedRun() {
+        CorrelationBasedSelectionStrategy strategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 6, 500);
+        strategy.setSeed(7);
+        strategy.findBestAttributeSubsets(1);
+
+        SelectionReport report = strategy.getReport();
+        Assert.assertEquals(SelectionReport.StopReason.COMPLETED, report.getStopReason());
+        Assert.assertEquals(500, report.getNumEvaluations());
+        assertImprovementsIncrease(report.getImprovements());
+    }
+
+    @Test
+    public void testEvaluationBudget() {
+        CorrelationBasedSelectionStrategy strategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 6, 500);
+        strategy.setSeed(7);
+        strategy.setEvaluationBudget(120);
+        List<ScoredAttributeSubset> bestSubsets = strategy.findBestAttributeSubsets(1);
+
+        SelectionReport report = strategy.getReport();
+        Assert.assertEquals(SelectionReport.StopReason.EVALUATION_BUDGET_EXHAUSTED, report.getStopReason());
+        Assert.assertEquals(120, report.getNumEvaluations());
+        Assert.assertEquals(report.getBestMerit(), bestSubsets.get(0).getMerit(), 0.0);
+    }
+
+    @Test
+    public void testEarlyStopping() {
+        CorrelationBasedSelectionStrategy strategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 6, 100000);
+        strategy.setSeed(7);
+        strategy.setEarlyStopping(200, 0.01);
+        strategy.findBestAttributeSubsets(1);
+
+        SelectionReport report = strategy.getReport();
+        Assert.assertEquals(SelectionReport.StopReason.CONVERGED, report.getStopReason());
+        Assert.assertTrue(report.getNumEvaluations() < 100000);
+        Assert.assertEquals(200, report.getNumEvaluationsSinceImprovement());
+        List<SelectionReport.Improvement> improvements = report.getImprovements();
+        Assert.assertEquals(report.getNumEvaluations() - 200, improvements.get(improvements.size() - 1).getEvaluation());
+    }
+
+    @Test
+    public void testTimeBudget() {
+        CorrelationBasedSelectionStrategy strategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 6, Integer.MAX_VALUE);
+        strategy.setTimeBudget(50);
+        strategy.setMeritCacheSize(0);
+        List<ScoredAttributeSubset> bestSubsets = strategy.findBestAttributeSubsets(1);
+
+        SelectionReport report = strategy.getReport();
+        Assert.assertEquals(SelectionReport.StopReason.TIME_BUDGET_EXHAUSTED, report.getStopReason());
+        Assert.assertFalse(bestSubsets.isEmpty());
+        Assert.assertTrue(report.getNumEvaluations() < Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void testSearchEvaluationBudget() {
+        GreedyForwardSelectionStrategy strategy = new GreedyForwardSelectionStrategy(dataSet, 1, 10);
+        strategy.setEvaluationBudget(30);
+        List<ScoredAttributeSubset> bestSubsets = strategy.findBestAttributeSubsets(1);
+
+        SelectionReport report = strategy.getReport();
+        Assert.assertEquals(SelectionReport.StopReason.EVALUATION_BUDGET_EXHAUSTED, report.getStopReason());
+        Assert.assertEquals(30, report.getNumEvaluations());
+        Assert.assertEquals(30, strategy.getNumEvaluations());
+        Assert.assertEquals(report.getBestMerit(), bestSubsets.get(0).getMerit(), 0.0);
+    }
+
+    @Test
+    public void testParallelRunMatchesSequentialRun() {
+        CorrelationBasedSelectionStrategy sequentialStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 6, 5000);
+        sequentialStrategy.setSeed(7);
+        CorrelationBasedSelectionStrategy parallelStrategy = new CorrelationBasedSelectionStrategy(dataSet, 2, 6, 5000);
+        parallelStrategy.setSeed(7);
+        parallelStrategy.setParallelism(4);
+
+        ScoredAttributeSubset sequentialBestSubset = sequentialStrategy.findBestAttributeSubsets(1).get(0);
+        ScoredAttributeSubset parallelBestSubset = parallelStrategy.findBestAttributeSubsets(1).get(0);
+
+        SelectionReport report = parallelStrategy.getReport();
+        Assert.assertEquals(5000, sequentialStrategy.getReport().getNumEvaluations());
+        Assert.assertEquals(5000, report.getNumEvaluations());
+        Assert.assertEquals(sequentialBestSubset.getIteration(), parallelBestSubset.getIteration());
+        Assert.assertEquals(parallelBestSubset.getMerit(), report.getBestMerit(), 0.0);
+        assertImprovementsIncrease(report.getImprovements());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeTimeBudget() {
+        new CorrelationBasedSelectionStrategy(dataSet, 2, 6, 10).setTimeBudget(-1);
+    }
+
+    private static void assertImprovementsIncrease(List<SelectionReport.Improvement> improvements) {
+        Assert.assertFalse(improvements.isEmpty());
+        for (int i = 1; i < improvements.size(); i++) {
+            Assert.assertTrue(Math.abs(improvements.get(i).getMerit()) > Math.abs(improvements.get(i - 1).getMerit()));
+            Assert.assertTrue(improvements.get(i).getEvaluation() > improvements.get(i - 1).getEvaluation());
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package thesis.engine.selection;
+
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Data sets whose class is a sum of some of the attributes plus noise, all other attributes are noise.
+ */
+class SelectionTestDataSets {
+
+    static Instances generate(int numAttributes, int numRows, long seed) {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        for (int i = 0; i < numAttributes; i++) {
+            attributes.add(new Attribute("attribute_" + i));
+        }
+        attributes.add(new Attribute("label"));
+        Instances dataSet = new Instances("test", attributes, numRows);
+        Random random = new Random(seed);
+        for (int row = 0; row < numRows; row++) {
+            double[] values = new double[numAttributes + 1];
+            for (int i = 0; i < numAttributes; i++) {
+                values[i] = random.nextGaussian();
+            }
+            values[numAttributes] = values[0] + values[1] + values[2] + random.nextGaussian();
+            dataSet.add(new DenseInstance(1.0, values));
+        }
+        dataSet.setClassIndex(numAttributes);
+        return dataSet;
+    }
+
+    /**
+     * Generates a data set whose class is twice the strong attribute plus the weak attribute plus noise.
+     */
+    static Instances generate(int numAttributes, int numRows, long seed, int strongAttribute, int weakAttribute) {
+        Instances dataSet = generate(numAttributes, numRows, seed);
+        Random random = new Random(seed + 1);
+        for (int row = 0; row < numRows; row++) {
+            double classValue = 2 * dataSet.instance(row).value(strongAttribute) + dataSet.instance(row).value(weakAttribute);
+            dataSet.instance(row).setClassValue(classValue + random.nextGaussian());
+        }
+        return dataSet;
+    }
+}
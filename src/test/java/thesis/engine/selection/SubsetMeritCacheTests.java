@@ -0,0 +1,48 @@
+package thesis.engine.selection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SubsetMeritCacheTests {
+
+    @Test
+    public void testRepeatedSubsetIsNotRecalculated() {
+        SubsetMeritCache meritCache = new SubsetMeritCache(10);
+        AtomicInteger calculations = new AtomicInteger();
+
+        meritCache.getMerit(subset(1, 4), attributeSubset -> calculations.incrementAndGet());
+        double merit = meritCache.getMerit(subset(1, 4), attributeSubset -> calculations.incrementAndGet());
+
+        Assert.assertEquals(1.0, merit, 0.0);
+        Assert.assertEquals(1, calculations.get());
+        Assert.assertEquals(1, meritCache.getHits());
+        Assert.assertEquals(1, meritCache.getMisses());
+        Assert.assertEquals(0.5, meritCache.getHitRate(), 0.0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedSubsetIsEvicted() {
+        SubsetMeritCache meritCache = new SubsetMeritCache(2);
+
+        meritCache.getMerit(subset(1), attributeSubset -> 1.0);
+        meritCache.getMerit(subset(2), attributeSubset -> 2.0);
+        meritCache.getMerit(subset(1), attributeSubset -> 1.0);
+        meritCache.getMerit(subset(3), attributeSubset -> 3.0);
+        meritCache.getMerit(subset(1), attributeSubset -> 1.0);
+
+        Assert.assertEquals(2, meritCache.size());
+        Assert.assertEquals(1, meritCache.getEvictions());
+        Assert.assertEquals(2, meritCache.getHits());
+    }
+
+    private BitSet subset(int... attributeIndices) {
+        BitSet attributeSubset = new BitSet();
+        for (int attributeIndex : attributeIndices) {
+            attributeSubset.set(attributeIndex);
+        }
+        return attributeSubset;
+    }
+}
@@ -0,0 +1,37 @@
+package thesis.engine.selection;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+public class TopAttributeSubsetsTests {
+
+    @Test
+    public void testOfferKeepsBestSubsets() {
+        TopAttributeSubsets bestSubsets = new TopAttributeSubsets(2);
+        bestSubsets.offer(new ScoredAttributeSubset(new BitSet(), 0.5, 0));
+        bestSubsets.offer(new ScoredAttributeSubset(new BitSet(), -2.0, 1));
+        bestSubsets.offer(new ScoredAttributeSubset(new BitSet(), Double.NaN, 2));
+        bestSubsets.offer(new ScoredAttributeSubset(new BitSet(), 1.0, 3));
+
+        List<ScoredAttributeSubset> subsets = bestSubsets.toList();
+
+        Assert.assertEquals(2, subsets.size());
+        Assert.assertEquals(1, subsets.get(0).getIteration());
+        Assert.assertEquals(3, subsets.get(1).getIteration());
+    }
+
+    @Test
+    public void testTiesAreResolvedByIteration() {
+        TopAttributeSubsets bestSubsets = new TopAttributeSubsets(1);
+        TopAttributeSubsets otherBestSubsets = new TopAttributeSubsets(1);
+        bestSubsets.offer(new ScoredAttributeSubset(new BitSet(), 1.0, 5));
+        otherBestSubsets.offer(new ScoredAttributeSubset(new BitSet(), -1.0, 2));
+
+        bestSubsets.merge(otherBestSubsets);
+
+        Assert.assertEquals(2, bestSubsets.toList().get(0).getIteration());
+    }
+}
@@ -0,0 +1,60 @@
+package thesis.engine.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import thesis.engine.column.ColumnStore;
+import weka.core.Attribute;
+import weka.core.DenseInstance;
+import weka.core.Instances;
+import weka.core.Utils;
+
+import java.util.ArrayList;
+
+public class DataSetStatisticsTests {
+
+    private final Instances dataSet;
+
+    public DataSetStatisticsTests() {
+        ArrayList<Attribute> attributes = new ArrayList<>();
+        attributes.add(new Attribute("gsm_rssi"));
+        attributes.add(new Attribute("no_cell_locates"));
+        dataSet = new Instances("test", attributes, 3);
+        dataSet.add(new DenseInstance(1.0, new double[] {-80, Utils.missingValue()}));
+        dataSet.add(new DenseInstance(1.0, new double[] {-60, 4}));
+        dataSet.add(new DenseInstance(1.0, new double[] {-70, Utils.missingValue()}));
+    }
+
+    @Test
+    public void testStatisticsOfDataSet() {
+        DataSetStatistics statistics = DataSetStatistics.of(dataSet);
+        AttributeStatistics gsmRssi = statistics.get(dataSet.attribute("gsm_rssi"));
+
+        Assert.assertEquals(-80, gsmRssi.getMin(), 0.0);
+        Assert.assertEquals(-60, gsmRssi.getMax(), 0.0);
+        Assert.assertEquals(-70, gsmRssi.getMean(), 0.0);
+        Assert.assertEquals(3, gsmRssi.getCount());
+        Assert.assertEquals(0, gsmRssi.getMissingCount());
+    }
+
+    @Test
+    public void testStatisticsIgnoreMissingValues() {
+        AttributeStatistics noCellLocates = DataSetStatistics.of(dataSet).get(1);
+
+        Assert.assertEquals(4, noCellLocates.getMean(), 0.0);
+        Assert.assertEquals(1, noCellLocates.getCount());
+        Assert.assertEquals(2, noCellLocates.getMissingCount());
+    }
+
+    @Test
+    public void testStatisticsOfSparseColumns() {
+        ColumnStore columns = ColumnStore.of(dataSet);
+        columns.compressSparseColumns(0.6);
+
+        AttributeStatistics noCellLocates = DataSetStatistics.of(columns).get(1);
+
+        Assert.assertEquals(4, noCellLocates.getMin(), 0.0);
+        Assert.assertEquals(4, noCellLocates.getMean(), 0.0);
+        Assert.assertEquals(1, noCellLocates.getCount());
+        Assert.assertEquals(2, noCellLocates.getMissingCount());
+    }
+}
@@ -0,0 +1,40 @@
+package thesis.engine.statistics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import thesis.engine.FileProcessingEngine;
+
+import java.io.File;
+import java.io.IOException;
+
+public class PreProcessingStateTests {
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        File file = File.createTempFile("preprocessing", ".state");
+        file.deleteOnExit();
+        DataSetStatistics statistics = DataSetStatistics.of(FileProcessingEngine.readDataSetFromFile("data/test/test.arff"));
+
+        new PreProcessingState(3, 812, 640, statistics, new long[] {1, 0, 2}).write(file.getPath());
+        PreProcessingState state = PreProcessingState.read(file.getPath());
+
+        Assert.assertEquals(3, state.getNumRows());
+        Assert.assertEquals(812, state.getInputOffset());
+        Assert.assertEquals(640, state.getOutputLength());
+        Assert.assertArrayEquals(new long[] {1, 0, 2}, state.getClassCounts());
+        Assert.assertEquals(statistics.numAttributes(), state.getStatistics().numAttributes());
+        for (int i = 0; i < statistics.numAttributes(); i++) {
+            AttributeStatistics expected = statistics.get(i);
+            AttributeStatistics actual = state.getStatistics().get(i);
+            Assert.assertEquals(expected.getAttributeName(), actual.getAttributeName());
+            Assert.assertEquals(expected.getSum(), actual.getSum(), 0.0);
+            Assert.assertEquals(expected.getCount(), actual.getCount());
+            Assert.assertEquals(expected.getMissingCount(), actual.getMissingCount());
+            if (expected.hasValues()) {
+                Assert.assertEquals(expected.getMin(), actual.getMin(), 0.0);
+                Assert.assertEquals(expected.getMax(), actual.getMax(), 0.0);
+            }
+        }
+        Assert.assertFalse(new File(file.getPath() + ".tmp").exists());
+    }
+}